@@ -2,6 +2,7 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderSummaryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,11 +24,13 @@ import javax.persistence.EntityManager;
 public class InitDb {
 
     private final InitService initService;
+    private final OrderSummaryService orderSummaryService;
 
     @PostConstruct
     public void init() {
         initService.dbInit1();
         initService.dbInit2();
+        orderSummaryService.rebuild(100); //주문 요약 테이블 채우기
     }
 
     @Component
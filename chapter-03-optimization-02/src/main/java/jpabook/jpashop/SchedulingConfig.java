@@ -0,0 +1,16 @@
+package jpabook.jpashop;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 주기 작업(@Scheduled) 실행: 재고 장부 반영, 재고 shard 재분배, 재고 예약 만료
+ * - jpashop.scheduling.enabled=false면 실행하지 않는다.
+ *   테스트는 컨텍스트마다 주기 작업이 같은 메모리 DB를 건드리므로 끄고, 필요한 작업을 직접 호출한다.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "jpashop.scheduling", name = "enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
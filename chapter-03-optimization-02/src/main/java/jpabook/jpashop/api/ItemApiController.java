@@ -0,0 +1,192 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import jpabook.jpashop.exception.SearchIndexNotReadyException;
+import jpabook.jpashop.repository.item.ItemDocument;
+import jpabook.jpashop.repository.item.ItemSearchIndex;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.StockLedger;
+import jpabook.jpashop.service.StockShardService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 상품 검색
+ * - 메모리 역색인(ItemSearchIndex)으로 검색, SQL 실행 없음
+ * - 기동 직후 인덱스 재구성 중에는 503
+ * 한정 판매 상품 재고 장부(StockLedger) 켜기/끄기
+ * 주문이 몰리는 상품 재고 shard(StockShardService) 켜기/끄기
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemSearchIndex itemSearchIndex;
+    private final StockLedger stockLedger;
+    private final StockShardService stockShardService;
+    private final ItemService itemService;
+
+    @Value("${jpashop.order.max-page-size:1000}")
+    private int maxPageSize; //페이징 조회시 한 페이지 최대 크기
+
+    /**
+     * 예) /api/items/search?q=kim jpa&offset=0&limit=20
+     * - 모든 단어가 들어간 상품을 score 순으로, total은 전체 검색 결과 수
+     */
+    @GetMapping("/api/items/search")
+    public SearchResult<ItemSearchDto> search(@RequestParam("q") String q,
+                                              @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                              @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestParameterException("limit은 1 ~ " + maxPageSize + " 사이여야 합니다.");
+        }
+        if (offset < 0) {
+            throw new InvalidRequestParameterException("offset은 0 이상이어야 합니다.");
+        }
+        if (!itemSearchIndex.isReady()) {
+            throw new SearchIndexNotReadyException("상품 검색 인덱스를 준비중입니다.");
+        }
+
+        List<ItemDocument> documents = itemSearchIndex.search(q);
+        List<ItemSearchDto> data = documents.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(ItemSearchDto::new)
+                .collect(toList());
+        return new SearchResult<>(documents.size(), data);
+    }
+
+    /**
+     * 재고 장부 사용 시작 (주문은 메모리에서 예약, 재고는 주기적으로 모아서 반영)
+     */
+    @PostMapping("/api/items/{itemId}/stock-ledger")
+    public StockLedgerResponse enableStockLedger(@PathVariable("itemId") Long itemId) {
+        try {
+            return new StockLedgerResponse(itemId, stockLedger.enable(itemId));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/api/items/{itemId}/stock-ledger")
+    public StockLedgerResponse stockLedger(@PathVariable("itemId") Long itemId) {
+        return new StockLedgerResponse(itemId, stockLedger.getAvailable(itemId));
+    }
+
+    /**
+     * 재고 장부 사용 중지 (예약된 재고는 반영 후 종료)
+     */
+    @DeleteMapping("/api/items/{itemId}/stock-ledger")
+    public StockLedgerResponse disableStockLedger(@PathVariable("itemId") Long itemId) {
+        stockLedger.disable(itemId);
+        return new StockLedgerResponse(itemId, null);
+    }
+
+    /**
+     * 예) POST /api/items/1/stock-shards?shards=8
+     * - 재고를 shards개 row로 나눔, 이미 나눈 상품이면 합쳐서 다시 나눔
+     */
+    @PostMapping("/api/items/{itemId}/stock-shards")
+    public StockShardResponse enableStockShards(@PathVariable("itemId") Long itemId,
+                                                @RequestParam(value = "shards", defaultValue = "8") int shards) {
+        try {
+            stockShardService.enable(itemId, shards);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+        return stockShards(itemId);
+    }
+
+    @GetMapping("/api/items/{itemId}/stock-shards")
+    public StockShardResponse stockShards(@PathVariable("itemId") Long itemId) {
+        Item item = itemService.findOne(itemId);
+        if (item == null) {
+            throw new InvalidRequestParameterException("상품이 없습니다: " + itemId);
+        }
+        return new StockShardResponse(itemId, stockShardService.getTotalStock(item), stockShardService.getQuantities(itemId));
+    }
+
+    /**
+     * 재고 shard 사용 중지 (shard 수량은 item.stock_quantity로 합침)
+     */
+    @DeleteMapping("/api/items/{itemId}/stock-shards")
+    public StockShardResponse disableStockShards(@PathVariable("itemId") Long itemId) {
+        try {
+            stockShardService.disable(itemId);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+        return stockShards(itemId);
+    }
+
+    @Data
+    static class SearchResult<T> {
+
+        private long total;
+        private List<T> data;
+
+        public SearchResult(long total, List<T> data) {
+            this.total = total;
+            this.data = data;
+        }
+    }
+
+    @Data
+    static class ItemSearchDto {
+
+        private Long itemId;
+        private String type;
+        private String name;
+        private int price;
+        private Map<String, String> fields; //author, isbn, artist, director, actor
+
+        public ItemSearchDto(ItemDocument document) {
+            itemId = document.getItemId();
+            type = document.getType();
+            name = document.getName();
+            price = document.getPrice();
+            fields = new LinkedHashMap<>(document.getFields());
+            fields.remove("name");
+        }
+    }
+
+    @Data
+    static class StockLedgerResponse {
+
+        private Long itemId;
+        private Integer available; //주문 가능 수량, 장부를 쓰지 않으면 null
+
+        public StockLedgerResponse(Long itemId, Integer available) {
+            this.itemId = itemId;
+            this.available = available;
+        }
+    }
+
+    @Data
+    static class StockShardResponse {
+
+        private Long itemId;
+        private int stockQuantity; //전체 재고 (shard 합계 포함)
+        private List<Integer> shards; //shard_no 순 수량, shard를 쓰지 않으면 빈 목록
+
+        public StockShardResponse(Long itemId, int stockQuantity, List<Integer> shards) {
+            this.itemId = itemId;
+            this.stockQuantity = stockQuantity;
+            this.shards = shards;
+        }
+    }
+}
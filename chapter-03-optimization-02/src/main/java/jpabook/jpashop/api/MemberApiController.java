@@ -11,8 +11,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.AggregateVersions;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -23,6 +26,7 @@ import lombok.RequiredArgsConstructor;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final AggregateVersions aggregateVersions;
 
     /**
      * 등록 V1: 요청 값으로 Member 엔티티를 직접 받는다.
@@ -80,9 +84,14 @@ public class MemberApiController {
 
     /**
      * 조회 V2: 응답 값으로 엔티티가 아닌 별도의 DTO를 반환한다.
+     * - 회원 쓰기 버전으로 ETag 응답, If-None-Match가 같으면 304
      */
     @GetMapping("/api/v2/members")
-    public Result<List<MemberDto>> membersV2() {
+    public Result<List<MemberDto>> membersV2(WebRequest request) {
+        //회원 변경이 없으면 DB 조회 없이 304 Not Modified
+        if (request.checkNotModified(aggregateVersions.etag(Aggregate.MEMBER))) {
+            return null;
+        }
 
         List<Member> findMembers = memberService.findMembers();
         //엔티티 -> DTO 변환
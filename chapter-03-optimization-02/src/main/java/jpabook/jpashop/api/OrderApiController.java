@@ -4,21 +4,50 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.*;
+import jpabook.jpashop.repository.order.OrderReadCache;
+import jpabook.jpashop.repository.order.query.OrderFieldSet;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
 import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.AggregateVersions;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
+import jpabook.jpashop.service.OrderBatchLine;
+import jpabook.jpashop.service.OrderBatchResult;
+import jpabook.jpashop.service.OrderBatchService;
+import jpabook.jpashop.service.OrderFetchPlan;
+import jpabook.jpashop.service.OrderFetchPlanner;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderTotalService;
+import jpabook.jpashop.service.TotalMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
-import static java.util.stream.Collectors.*;
+import static java.util.stream.Collectors.toList;
 
 
 /**
@@ -30,22 +59,59 @@ import static java.util.stream.Collectors.*;
  * V2. 엔티티를 조회해서 DTO로 변환(fetch join 사용X)
  * - 트랜잭션 안에서 지연 로딩 필요
  * V3. 엔티티를 조회해서 DTO로 변환(fetch join 사용O)
+ * - V3.x는 조회할 연관관계를 OrderGraph(named entity graph)로 선언
  * - 페이징 시에는 N 부분을 포기해야함(대신에 batch fetch size? 옵션 주면 N -> 1 쿼리로 변경 가능)
+ * V3.2 V3.1을 offset 대신 키셋(seek) 페이징으로 조회
+ * - 페이지가 뒤로 가도 조회 비용이 일정
+ * V3.3 컬렉션까지 fetch join 하면서 페이징 (order_id 페이징 -> IN 절로 fetch join, 쿼리 2번)
  *
- * V4. JPA에서 DTO로 바로 조회, 컬렉션 N 조회 (1 + N Query)
+ * V4. JPA에서 DTO로 바로 조회, 컬렉션은 주문마다 요청하지만 BatchLoader로 모아서 조회 (1 + 1 Query)
  * - 페이징 가능
+ * - V4, V5, V5.1 조회 결과는 OrderReadCache에 캐시 (변경 커밋시 제거)
  * V5. JPA에서 DTO로 바로 조회, 컬렉션 1 조회 최적화 버전 (1 + 1 Query)
  * - 페이징 가능
+ * V5.1 V5에 페이징 적용(offset, 키셋)
+ * - fields 파라미터로 필요한 필드만 조회 가능(필요 없는 조인 생략)
  * V6. JPA에서 DTO로 바로 조회, 플랫 데이터(1Query) (1 Query)
  * - 페이징 불가능...
+ * V6.1 V6 플랫 데이터를 커서로 읽으면서 NDJSON으로 스트리밍
+ * - 결과 크기와 상관없이 메모리 사용량 일정
+ *
+ * /api/orders 통계를 보고 위 전략 중 하나를 자동으로 선택
+ *
+ * POST /api/orders 여러 상품 주문 (장바구니 -> 주문 1건, 상품 row는 item_id 순으로 잠금)
+ * POST /api/orders/batch 일괄 주문 (줄마다 주문 1건, chunk 단위 트랜잭션 + JDBC batch insert)
  *
  */
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String FETCH_PLAN_HEADER = "X-Order-Fetch-Plan";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderFetchPlanner orderFetchPlanner;
+    private final OrderReadCache orderReadCache;
+    private final AggregateVersions aggregateVersions;
+    private final OrderTotalService orderTotalService;
+    private final OrderBatchService orderBatchService;
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${jpashop.order.max-page-size:1000}")
+    private int maxPageSize; //페이징 조회시 한 페이지 최대 크기
+
+    @Value("${jpashop.order.stream.fetch-size:1000}")
+    private int streamFetchSize; //스트리밍 조회시 JDBC fetch size
+
+    @Value("${jpashop.order.batch.max-lines:10000}")
+    private int maxBatchLines; //일괄 주문 요청 1번의 최대 줄 수
+
+    @Value("${jpashop.order.max-lines:100}")
+    private int maxOrderLines; //주문 1건의 최대 주문상품 수
 
     /**
      * V1. 엔티티 직접 노출
@@ -76,7 +142,7 @@ public class OrderApiController {
 
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithItem();
+        List<Order> orders = orderRepository.findAll(OrderGraph.FULL);
         List<OrderDto> result = orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
@@ -88,39 +154,342 @@ public class OrderApiController {
      * V3.1 엔티티를 조회해서 DTO로 변환 페이징 고려
      * - ToOne 관계만 우선 모두 페치 조인으로 최적화
      * - 컬렉션 관계는 hibernate.default_batch_fetch_size, @BatchSize로 최적화
+     * - total 파라미터(exact, cached, estimate)를 주면 전체 건수를 X-Total-Count 헤더로 응답
      */
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
-                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    public ResponseEntity<List<OrderDto>> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                        @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                        @RequestParam(value = "total", required = false) String total) {
+        TotalMode totalMode = TotalMode.parse(total);
 
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+        List<Order> orders = orderRepository.findAll(OrderGraph.SUMMARY, offset, limit);
         List<OrderDto> result = orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
 
-        return result;
+        //응답 스펙(List)을 유지하기 위해 전체 건수는 헤더로 준다.
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (totalMode != null) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(orderTotalService.getTotal(totalMode)));
+        }
+        return response.body(result);
+    }
+
+    /**
+     * V3.2 엔티티를 조회해서 DTO로 변환 키셋(seek) 페이징
+     * - offset 대신 마지막으로 조회한 order_id 다음부터 조회 -> 뒤쪽 페이지도 첫 페이지와 비용이 같음
+     * - 다음 페이지는 응답의 nextCursor 값을 cursor 파라미터로 넘긴다.
+     * - 컬렉션 관계는 V3.1과 동일하게 hibernate.default_batch_fetch_size로 최적화
+     */
+    @GetMapping("/api/v3.2/orders")
+    public PageResult<OrderDto> ordersV3_cursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                               @RequestParam(value = "total", required = false) String total) {
+        checkLimit(limit);
+        TotalMode totalMode = TotalMode.parse(total);
+
+        List<Order> orders = orderRepository.findAll(OrderGraph.SUMMARY, OrderCursor.decode(cursor), limit);
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+
+        //가득 찬 페이지면 다음 페이지가 있을 수 있다.
+        String nextCursor = orders.size() == limit
+                ? OrderCursor.after(orders.get(orders.size() - 1).getId()).encode()
+                : null;
+        return new PageResult<>(result, nextCursor, getTotal(totalMode));
+    }
+
+    /**
+     * V3.3 컬렉션 fetch join + 페이징 (2단계 조회)
+     * - 1단계: 정렬 조건으로 order_id 한 페이지만 조회 (DB 페이징)
+     * - 2단계: 해당 order_id만 member, delivery, orderItems, item까지 fetch join으로 조회
+     * - sort: id(기본), id_desc, order_date_desc
+     */
+    @GetMapping("/api/v3.3/orders")
+    public List<OrderDto> ordersV3_twoPhase(@RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                            @RequestParam(value = "sort", required = false) String sort) {
+        checkLimit(limit);
+        if (offset < 0) {
+            throw new InvalidRequestParameterException("offset은 0 이상이어야 합니다.");
+        }
+
+        List<Order> orders = orderRepository.findAll(OrderGraph.FULL, OrderSort.parse(sort), offset, limit);
+        return orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
     }
 
+    /**
+     * V4, V5 목록은 주문/회원/상품 쓰기 버전으로 ETag 응답
+     * - If-None-Match가 같으면 DB 조회, 직렬화 없이 304
+     */
     @GetMapping("/api/v4/orders")
-    public List<OrderQueryDto> ordersV4() {
-        return orderQueryRepository.findOrderQueryDtos();
+    public List<OrderQueryDto> ordersV4(WebRequest request) {
+        if (request.checkNotModified(orderListEtag())) {
+            return null;
+        }
+        return orderReadCache.getAll("v4", OrderApiController::rows,
+                orderQueryRepository::findOrderQueryDtos);
     }
 
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
-        return orderQueryRepository.findAllByDto_optimization();
+    public List<OrderQueryDto> ordersV5(WebRequest request) {
+        if (request.checkNotModified(orderListEtag())) {
+            return null;
+        }
+        return findAllV5();
+    }
+
+    /**
+     * V5.1 JPA에서 DTO로 바로 조회, 컬렉션 1 조회 최적화 + 페이징
+     * - 루트(주문)만 페이징해서 조회하고, 해당 페이지 주문의 orderItem만 IN 절로 1번 조회
+     * - offset 파라미터가 있으면 offset 페이징, 없으면 cursor로 키셋 페이징
+     * - limit은 jpashop.order.max-page-size를 넘을 수 없음
+     * - total 파라미터(exact, cached, estimate)를 주면 전체 건수 포함
+     */
+    @GetMapping("/api/v5.1/orders")
+    public PageResult<OrderQueryDto> ordersV5_page(@RequestParam(value = "offset", required = false) Integer offset,
+                                                   @RequestParam(value = "cursor", required = false) String cursor,
+                                                   @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                   @RequestParam(value = "total", required = false) String total) {
+        checkLimit(limit);
+        TotalMode totalMode = TotalMode.parse(total);
+        if (offset != null && cursor != null) {
+            throw new InvalidRequestParameterException("offset과 cursor는 함께 사용할 수 없습니다.");
+        }
+        if (offset != null && offset < 0) {
+            throw new InvalidRequestParameterException("offset은 0 이상이어야 합니다.");
+        }
+
+        OrderCursor orderCursor = OrderCursor.decode(cursor);
+        List<OrderQueryDto> result = offset != null
+                ? orderReadCache.getPage("v5.1", offset, limit, OrderApiController::rows,
+                        () -> orderQueryRepository.findAllByDto_optimization(offset, limit))
+                : orderReadCache.getPage("v5.1", orderCursor, limit, OrderApiController::rows,
+                        () -> orderQueryRepository.findAllByDto_optimization(orderCursor, limit));
+
+        //order_id 순으로 정렬되어 있으므로 offset 페이징도 다음 페이지 커서를 줄 수 있다.
+        String nextCursor = result.size() == limit
+                ? OrderCursor.after(result.get(result.size() - 1).getOrderId()).encode()
+                : null;
+        return new PageResult<>(result, nextCursor, getTotal(totalMode));
+    }
+
+    /**
+     * V5.1 + 필요한 필드만 조회 (sparse fieldset)
+     * - 예) /api/v5.1/orders?fields=orderId,orderStatus,orderItems.itemName
+     * - 요청한 컬럼만 select, 필요 없는 조인(member, delivery, item)과 orderItems 조회는 생략
+     * - 키셋 페이징만 지원 (offset을 같이 주면 400)
+     */
+    @GetMapping(value = "/api/v5.1/orders", params = "fields")
+    public PageResult<Map<String, Object>> ordersV5_fields(@RequestParam("fields") String fields,
+                                                           @RequestParam(value = "offset", required = false) Integer offset,
+                                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                           @RequestParam(value = "total", required = false) String total) {
+        checkLimit(limit);
+        TotalMode totalMode = TotalMode.parse(total);
+        if (offset != null) {
+            throw new InvalidRequestParameterException("fields를 지정하면 offset 대신 cursor로 페이징해야 합니다.");
+        }
+
+        //key: orderId (응답에 orderId를 요청하지 않아도 다음 페이지 커서를 만들 수 있도록)
+        Map<Long, Map<String, Object>> result =
+                orderQueryRepository.findAllByFields(OrderFieldSet.parse(fields), OrderCursor.decode(cursor), limit);
+
+        List<Long> orderIds = new ArrayList<>(result.keySet());
+        String nextCursor = orderIds.size() == limit
+                ? OrderCursor.after(orderIds.get(orderIds.size() - 1)).encode()
+                : null;
+        return new PageResult<>(new ArrayList<>(result.values()), nextCursor, getTotal(totalMode));
     }
 
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
         List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
 
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+        //order_id 순으로 정렬된 row를 한 번만 훑어서 조립(순서 유지, 중간 Map 없음)
+        return OrderFlatAssembler.assemble(flats);
+    }
+
+    /**
+     * 조회 전략 자동 선택
+     * - 주문/주문상품 통계와 페이징 여부로 V3, V5, V6 중 가장 싼 전략을 골라서 조회
+     * - 선택한 전략은 X-Order-Fetch-Plan 헤더로 알려준다.
+     * - limit 파라미터가 있으면 키셋 페이징(PageResult), 없으면 전체 목록
+     */
+    @GetMapping("/api/orders")
+    public ResponseEntity<Object> orders(@RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        OrderFetchPlan plan = orderFetchPlanner.plan(limit != null || cursor != null);
+
+        Object body;
+        switch (plan) {
+            case V5_PAGED:
+                body = ordersV5_page(null, cursor, limit != null ? limit : 100, null);
+                break;
+            case V3_FETCH_JOIN:
+                body = ordersV3();
+                break;
+            case V6_FLAT:
+                body = ordersV6();
+                break;
+            default:
+                body = findAllV5();
+        }
+        return ResponseEntity.ok()
+                .header(FETCH_PLAN_HEADER, plan.name())
+                .body(body);
+    }
+
+    /**
+     * 여러 상품 주문
+     * - 예) {"memberId": 1, "lines": [{"itemId": 2, "count": 3}, ...]}
+     * - 한 줄이라도 상품이 없거나 재고가 모자라면 주문하지 않는다.
+     */
+    @PostMapping("/api/orders")
+    public CreateOrderResponse order(@RequestBody CreateOrderRequest request) {
+        List<CreateOrderLine> lines = request.getLines();
+        if (request.getMemberId() == null) {
+            throw new InvalidRequestParameterException("memberId가 필요합니다.");
+        }
+        if (lines == null || lines.isEmpty() || lines.size() > maxOrderLines) {
+            throw new InvalidRequestParameterException("lines는 1 ~ " + maxOrderLines + "줄이어야 합니다.");
+        }
+        try {
+            Long orderId = orderService.order(request.getMemberId(), lines.stream()
+                    .map(line -> new OrderLine(line.getItemId(), line.getCount()))
+                    .collect(toList()));
+            return new CreateOrderResponse(orderId);
+        } catch (IllegalArgumentException | NotEnoughStockException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 일괄 주문
+     * - 예) {"lines": [{"memberId": 1, "itemId": 2, "count": 3}, ...]}
+     * - 줄마다 성공(orderId)/실패(error), 실패한 줄이 있어도 나머지는 주문된다.
+     */
+    @PostMapping("/api/orders/batch")
+    public BatchOrderResponse orderBatch(@RequestBody BatchOrderRequest request) {
+        List<BatchOrderLine> lines = request.getLines();
+        if (lines == null || lines.isEmpty() || lines.size() > maxBatchLines) {
+            throw new InvalidRequestParameterException("lines는 1 ~ " + maxBatchLines + "줄이어야 합니다.");
+        }
+        List<OrderBatchResult> results = orderBatchService.order(lines.stream()
+                .map(line -> new OrderBatchLine(line.getMemberId(), line.getItemId(), line.getCount()))
+                .collect(toList()));
+        return new BatchOrderResponse(results);
+    }
+
+    /**
+     * V6.1 플랫 데이터 NDJSON 스트리밍
+     * - 전체 결과를 List로 모으지 않고 주문 1건이 완성될 때마다 한 줄(JSON)씩 바로 내려보낸다.
+     * - 수백만 건을 내려도 힙 사용량이 일정
+     */
+    @GetMapping(value = "/api/v6.1/orders", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> ordersV6_stream() {
+        StreamingResponseBody body = out ->
+                orderQueryRepository.streamAllByDto_flat(streamFetchSize, o -> writeLine(out, o));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    private Long getTotal(TotalMode totalMode) {
+        return totalMode != null ? orderTotalService.getTotal(totalMode) : null;
+    }
+
+    private List<OrderQueryDto> findAllV5() {
+        return orderReadCache.getAll("v5", OrderApiController::rows,
+                orderQueryRepository::findAllByDto_optimization);
+    }
+
+    //주문 목록에는 회원 이름, 상품 이름이 포함된다.
+    private String orderListEtag() {
+        return aggregateVersions.etag(Aggregate.ORDER, Aggregate.MEMBER, Aggregate.ITEM);
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestParameterException("limit은 1 ~ " + maxPageSize + " 사이여야 합니다.");
+        }
+    }
+
+    //캐시 크기 계산용 row 수 (주문 1 + 주문상품 수)
+    private static int rows(OrderQueryDto order) {
+        return 1 + (order.getOrderItems() != null ? order.getOrderItems().size() : 0);
+    }
+
+    private void writeLine(OutputStream out, OrderQueryDto order) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(order));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        private Long memberId;
+        private List<CreateOrderLine> lines;
+    }
+
+    @Data
+    static class CreateOrderLine {
+        private Long itemId;
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long orderId;
+    }
+
+    @Data
+    static class BatchOrderRequest {
+        private List<BatchOrderLine> lines;
+    }
+
+    @Data
+    static class BatchOrderLine {
+        private Long memberId;
+        private Long itemId;
+        private int count;
+    }
+
+    @Data
+    static class BatchOrderResponse {
+
+        private int succeeded;
+        private int failed;
+        private List<BatchOrderResultDto> results;
+
+        public BatchOrderResponse(List<OrderBatchResult> results) {
+            this.results = results.stream().map(BatchOrderResultDto::new).collect(toList());
+            succeeded = (int) results.stream().filter(OrderBatchResult::isSuccess).count();
+            failed = results.size() - succeeded;
+        }
+    }
+
+    @Data
+    static class BatchOrderResultDto {
+
+        private int index;
+        private Long orderId; //성공하면 주문 id
+        private String error; //실패하면 이유
+
+        public BatchOrderResultDto(OrderBatchResult result) {
+            index = result.getIndex();
+            orderId = result.getOrderId();
+            error = result.getError();
+        }
     }
 
     @Data
@@ -3,12 +3,20 @@ package jpabook.jpashop.api;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.exception.InvalidRequestParameterException;
 import jpabook.jpashop.repository.*;
+import jpabook.jpashop.repository.order.OrderReadCache;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderSummaryService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
@@ -30,6 +38,11 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository; //의존관계 주입
+    private final OrderSummaryService orderSummaryService;
+    private final OrderReadCache orderReadCache;
+
+    @Value("${jpashop.order.max-page-size:1000}")
+    private int maxPageSize; //페이징 조회시 한 페이지 최대 크기
 
     /**
      * V1. 엔티티 직접 노출
@@ -67,18 +80,90 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery();
+        List<Order> orders = orderRepository.findAll(OrderGraph.SUMMARY);
         List<SimpleOrderDto> result = orders.stream()
                 .map(o -> new SimpleOrderDto(o))
                 .collect(toList());
         return result;
     }
 
+    /**
+     * V4. JPA에서 DTO로 바로 조회
+     * - 조회 결과는 OrderReadCache에 캐시 (변경 커밋시 제거)
+     */
     @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> ordersV4() {
-        return orderSimpleQueryRepository.findOrderDtos();
+        return orderReadCache.getAll("simple-v4", o -> 1,
+                orderSimpleQueryRepository::findOrderDtos);
+    }
+
+    /**
+     * V5. 비정규화된 주문 요약 테이블(order_summary) 조회
+     * - 조인 없이 단일 테이블 PK 인덱스로 키셋 페이징
+     * - 주문/취소시 같은 트랜잭션에서 갱신
+     */
+    @GetMapping("/api/v5/simple-orders")
+    public PageResult<OrderSummaryDto> ordersV5(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestParameterException("limit은 1 ~ " + maxPageSize + " 사이여야 합니다.");
+        }
+
+        List<OrderSummary> summaries = orderSummaryService.findOrderSummaries(OrderCursor.decode(cursor), limit);
+        List<OrderSummaryDto> result = summaries.stream()
+                .map(s -> new OrderSummaryDto(s))
+                .collect(toList());
+
+        String nextCursor = summaries.size() == limit
+                ? OrderCursor.after(summaries.get(summaries.size() - 1).getId()).encode()
+                : null;
+        return new PageResult<>(result, nextCursor);
+    }
+
+    /**
+     * 주문 검색 - 주문시간/회원/상태/주문 금액 조건, 주문시간 순 키셋 페이징
+     * - 주문시간 범위는 [orderDateFrom, orderDateTo), 주문 금액은 [minTotal, maxTotal]
+     * - 조건 컬럼 + 주문시간 복합 인덱스로 조회 (Order @Table 참고)
+     */
+    @GetMapping("/api/simple-orders/search")
+    public PageResult<SimpleOrderDto> searchOrders(@ModelAttribute OrderSearch orderSearch,
+                                                   @RequestParam(value = "cursor", required = false) String cursor,
+                                                   @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestParameterException("limit은 1 ~ " + maxPageSize + " 사이여야 합니다.");
+        }
+        if (orderSearch.getOrderDateFrom() != null && orderSearch.getOrderDateTo() != null
+                && orderSearch.getOrderDateFrom().isAfter(orderSearch.getOrderDateTo())) {
+            throw new InvalidRequestParameterException("orderDateFrom은 orderDateTo보다 클 수 없습니다.");
+        }
+        if (orderSearch.getMinTotal() != null && orderSearch.getMaxTotal() != null
+                && orderSearch.getMinTotal() > orderSearch.getMaxTotal()) {
+            throw new InvalidRequestParameterException("minTotal은 maxTotal보다 클 수 없습니다.");
+        }
+
+        List<Order> orders = orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.decode(cursor), limit);
+        List<SimpleOrderDto> result = orders.stream()
+                .map(o -> new SimpleOrderDto(o))
+                .collect(toList());
+
+        String nextCursor = null;
+        if (orders.size() == limit) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = OrderSearchCursor.after(last.getOrderDate(), last.getId()).encode();
+        }
+        return new PageResult<>(result, nextCursor);
     }
 
+    /**
+     * 주문 요약 테이블 재구성 (정규화 테이블에서 batchSize 단위로 다시 채움)
+     */
+    @PostMapping("/api/order-summaries/rebuild")
+    public RebuildResponse rebuildOrderSummaries(@RequestParam(value = "batchSize", defaultValue = "1000") int batchSize) {
+        if (batchSize < 1) {
+            throw new InvalidRequestParameterException("batchSize는 1 이상이어야 합니다.");
+        }
+        return new RebuildResponse(orderSummaryService.rebuild(batchSize));
+    }
 
     @Data
     static class SimpleOrderDto {
@@ -98,4 +183,35 @@ public class OrderSimpleApiController {
         }
     }
 
+    @Data
+    static class OrderSummaryDto {
+
+        private Long orderId;
+        private String name;
+        private LocalDateTime orderDate; //주문시간
+        private OrderStatus orderStatus;
+        private Address address;
+        private int itemCount; //주문상품 수
+        private int totalPrice; //전체 주문 가격
+
+        public OrderSummaryDto(OrderSummary orderSummary) {
+            orderId = orderSummary.getId();
+            name = orderSummary.getMemberName();
+            orderDate = orderSummary.getOrderDate();
+            orderStatus = orderSummary.getStatus();
+            address = orderSummary.getAddress();
+            itemCount = orderSummary.getItemCount();
+            totalPrice = orderSummary.getTotalPrice();
+        }
+    }
+
+    @Data
+    static class RebuildResponse {
+        private long count; //처리한 주문 수
+
+        public RebuildResponse(long count) {
+            this.count = count;
+        }
+    }
+
 }
@@ -0,0 +1,31 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 페이징 응답
+ * - nextCursor: 다음 페이지 조회용 커서, 마지막 페이지면 null
+ * - total: 전체 건수, total 파라미터로 요청한 경우에만 포함
+ */
+@Data
+public class PageResult<T> {
+
+    private List<T> data;
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+
+    public PageResult(List<T> data, String nextCursor) {
+        this.data = data;
+        this.nextCursor = nextCursor;
+    }
+
+    public PageResult(List<T> data, String nextCursor, Long total) {
+        this.data = data;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.StockReservationNotAllowedException;
+import jpabook.jpashop.service.reservation.StockReservationService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+/**
+ * 장바구니 재고 예약
+ * - 예약하면 재고를 바로 차감하고 expiresAt까지 잡아둔다. 확정하지 않으면 만료되어 재고로 돌아간다.
+ * - 재고 장부를 쓰는 상품은 409 (StockReservationNotAllowedException)
+ */
+@RestController
+@RequiredArgsConstructor
+public class StockReservationApiController {
+
+    private final StockReservationService stockReservationService;
+
+    @PostMapping("/api/stock-reservations")
+    public ReservationResponse reserve(@RequestBody ReservationRequest request) {
+        try {
+            StockReservation reservation = stockReservationService.reserve(request.getMemberId(), request.getItemId(), request.getCount());
+            return new ReservationResponse(reservation.getId(), reservation.getExpiresAt());
+        } catch (StockReservationNotAllowedException e) {
+            throw e;
+        } catch (IllegalArgumentException | IllegalStateException | NotEnoughStockException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 예약 확정 -> 주문 생성
+     */
+    @PostMapping("/api/stock-reservations/{reservationId}/confirm")
+    public ConfirmResponse confirm(@PathVariable("reservationId") Long reservationId) {
+        try {
+            return new ConfirmResponse(stockReservationService.confirm(reservationId));
+        } catch (IllegalStateException e) {
+            throw new InvalidRequestParameterException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 예약 해제 (재고 반환), 이미 확정/해제/만료된 예약이면 released = false
+     */
+    @DeleteMapping("/api/stock-reservations/{reservationId}")
+    public ReleaseResponse release(@PathVariable("reservationId") Long reservationId) {
+        return new ReleaseResponse(stockReservationService.release(reservationId));
+    }
+
+    @Data
+    static class ReservationRequest {
+        private Long memberId;
+        private Long itemId;
+        private int count;
+    }
+
+    @Data
+    static class ReservationResponse {
+
+        private Long reservationId;
+        private LocalDateTime expiresAt;
+
+        public ReservationResponse(Long reservationId, LocalDateTime expiresAt) {
+            this.reservationId = reservationId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Data
+    static class ConfirmResponse {
+
+        private Long orderId;
+
+        public ConfirmResponse(Long orderId) {
+            this.orderId = orderId;
+        }
+    }
+
+    @Data
+    static class ReleaseResponse {
+
+        private boolean released;
+
+        public ReleaseResponse(boolean released) {
+            this.released = released;
+        }
+    }
+}
@@ -43,6 +43,7 @@ public class ItemController {
     public String list(Model model) {
         List<Item> items = itemService.findItems();
         model.addAttribute("items", items);
+        model.addAttribute("stocks", itemService.getTotalStocks(items));
         return "items/itemList";
     }
 
@@ -54,7 +55,8 @@ public class ItemController {
         form.setId(item.getId());
         form.setName(item.getName());
         form.setPrice(item.getPrice());
-        form.setStockQuantity(item.getStockQuantity());
+        //shard를 쓰는 상품은 전체 재고로 보여주고, 저장하면 replaceStock으로 다시 나눈다.
+        form.setStockQuantity(itemService.getTotalStock(item));
         form.setAuthor(item.getAuthor());
         form.setIsbn(item.getIsbn());
 
@@ -4,6 +4,7 @@ import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchCursor;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
@@ -11,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -18,6 +20,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final int PAGE_SIZE = 100;
+
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
@@ -43,10 +47,21 @@ public class OrderController {
         return "redirect:/orders";
     }
 
+    /**
+     * 주문 목록, PAGE_SIZE씩 주문시간 순 (다음 페이지는 cursor)
+     */
     @GetMapping("/orders")
-    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
+    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch,
+                            @RequestParam(value = "cursor", required = false) String cursor, Model model) {
+        List<Order> orders = orderService.findOrders(orderSearch, OrderSearchCursor.decode(cursor), PAGE_SIZE);
         model.addAttribute("orders", orders);
+        if (orders.size() == PAGE_SIZE) {
+            Order last = orders.get(orders.size() - 1);
+            //검색 조건은 그대로 두고 cursor만 바꾼다.
+            model.addAttribute("nextPageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", OrderSearchCursor.after(last.getOrderDate(), last.getId()).encode())
+                    .toUriString());
+        }
 
         return "order/orderList";
     }
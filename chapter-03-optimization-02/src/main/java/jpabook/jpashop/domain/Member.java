@@ -1,6 +1,8 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
+import jpabook.jpashop.event.MemberChangeListener;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -9,10 +11,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(MemberChangeListener.class)
 @Getter @Setter
 public class Member {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
     @Column(name = "member_id")
     private Long id;
 
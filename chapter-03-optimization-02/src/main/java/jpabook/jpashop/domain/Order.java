@@ -13,24 +13,51 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        //주문 검색(OrderRepository.findAllBySearch) - 조건 컬럼 다음에 주문시간을 두어 키셋 정렬까지 인덱스로
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        @Index(name = "idx_orders_member_order_date", columnList = "member_id, order_date"),
+        @Index(name = "idx_orders_order_date", columnList = "order_date")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Order.GRAPH_SUMMARY, attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery")
+        }),
+        @NamedEntityGraph(name = Order.GRAPH_FULL, attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery"),
+                @NamedAttributeNode(value = "orderItems", subgraph = "orderItems")
+        }, subgraphs = @NamedSubgraph(name = "orderItems", attributeNodes = @NamedAttributeNode("item")))
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    //fetch plan (repository.OrderGraph)
+    public static final String GRAPH_SUMMARY = "order.summary"; //member, delivery
+    public static final String GRAPH_FULL = "order.full";       //member, delivery, orderItems.item
+
+    @Id @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
     @Column(name = "order_id")
     private Long id;
 
@@ -45,6 +72,7 @@ public class Order {
     @JoinColumn(name = "delivery_id")
     private Delivery delivery;
 
+    @Column(name = "order_date")
     private LocalDateTime orderDate; //주문시간
 
     @Enumerated(EnumType.STRING)
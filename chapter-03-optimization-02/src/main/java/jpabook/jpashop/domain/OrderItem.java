@@ -1,6 +1,7 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
 import jpabook.jpashop.domain.item.Item;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -16,7 +17,7 @@ import static javax.persistence.FetchType.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -32,6 +33,13 @@ public class OrderItem {
     private int orderPrice; //주문 가격
     private int count; //주문 수량
 
+    //재고를 StockLedger(메모리)에서만 차감했고 item.stock_quantity에는 아직 반영 안 함
+    //StockLedger.flush가 모아서 반영하고 false로 바꾼다. (장애 후에도 이 값으로 미반영 재고를 복구)
+    private boolean stockPending;
+
+    @Version
+    private Long version; //stockPending 반영(flush)과 주문 취소가 겹치는 것 감지
+
     //==생성 메서드==//
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
@@ -43,8 +51,33 @@ public class OrderItem {
         return orderItem;
     }
 
+    /**
+     * 재고를 이미 차감한 상품으로 주문상품 생성 (StockManager)
+     */
+    public static OrderItem createOrderItemReserved(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
+    /**
+     * StockLedger로 재고를 예약한 주문상품 생성 (item.stock_quantity는 flush 때 차감)
+     */
+    public static OrderItem createOrderItemPending(Item item, int orderPrice, int count) {
+        OrderItem orderItem = createOrderItemReserved(item, orderPrice, count);
+        orderItem.setStockPending(true);
+        return orderItem;
+    }
+
     //==비즈니스 로직==//
     public void cancel() {
+        if (stockPending) {
+            //아직 재고에 반영 전이면 반영하지 않게만 한다.
+            stockPending = false;
+            return;
+        }
         getItem().addStock(count);
     }
 
@@ -0,0 +1,65 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회용 비정규화 테이블
+ * - 주문/취소시 OrderService가 같은 트랜잭션에서 갱신한다.
+ * - 회원 이름은 회원 수정이 커밋된 뒤 OrderSummaryService.onMemberChanged가 별도 트랜잭션에서 갱신한다.
+ * - 목록 조회는 조인 없이 이 테이블의 PK(order_id) 인덱스만 사용
+ */
+@Entity
+@Table(name = "order_summary")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long id; //주문번호와 같은 값
+
+    private String memberName;
+
+    private LocalDateTime orderDate; //주문시간
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status; //주문상태 [ORDER, CANCEL]
+
+    @Embedded
+    private Address address; //배송지
+
+    private int itemCount; //주문상품 수
+    private int totalPrice; //전체 주문 가격
+
+    //==생성 메서드==//
+    public static OrderSummary createOrderSummary(Order order) {
+        OrderSummary orderSummary = new OrderSummary();
+        orderSummary.id = order.getId();
+        orderSummary.refresh(order);
+        return orderSummary;
+    }
+
+    //==비즈니스 로직==//
+    /**
+     * 주문 정보로 다시 채운다.
+     */
+    public void refresh(Order order) {
+        this.memberName = order.getMember().getName();
+        this.orderDate = order.getOrderDate();
+        this.status = order.getStatus();
+        this.address = order.getDelivery().getAddress();
+        this.itemCount = order.getOrderItems().size();
+        this.totalPrice = order.getTotalPrice();
+    }
+}
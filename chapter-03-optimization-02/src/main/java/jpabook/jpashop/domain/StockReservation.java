@@ -0,0 +1,61 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
+import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+import static javax.persistence.FetchType.LAZY;
+
+/**
+ * 장바구니 재고 예약 (만료 전까지 재고를 잡아둔다)
+ * - 예약할 때 item.stock_quantity에서 차감, 만료/해제되면 돌려주고 삭제, 확정되면 주문상품이 되고 삭제
+ * - 만료는 StockReservationService의 타이밍 휠이 처리, 이 테이블은 기동시 휠 복구용으로만 읽는다.
+ */
+@Entity
+@Table(name = "stock_reservation")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockReservation {
+
+    @Id @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
+    @Column(name = "stock_reservation_id")
+    private Long id;
+
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "member_id")
+    private Member member;
+
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    private int count; //예약 수량
+
+    private LocalDateTime expiresAt; //만료 시간
+
+    //==생성 메서드==//
+    public static StockReservation createStockReservation(Member member, Item item, int count, LocalDateTime expiresAt) {
+        StockReservation reservation = new StockReservation();
+        reservation.member = member;
+        reservation.item = item;
+        reservation.count = count;
+        reservation.expiresAt = expiresAt;
+        return reservation;
+    }
+
+    //==조회 로직==//
+    public boolean isExpired(LocalDateTime now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.domain.id;
+
+import java.util.Locale;
+
+/**
+ * 엔티티 id 생성 방식 (JpashopIdGenerator)
+ * - SEQUENCE: hibernate_sequence에서 id마다 nextval (insert 1번에 DB 왕복 1번 추가)
+ * - POOLED_LO: 엔티티별 시퀀스(테이블명_seq)를 allocation_size씩 증가, nextval 1번으로 allocation_size개 id를 메모리에서 발급
+ * - SNOWFLAKE: DB 없이 메모리에서 64bit id 발급 (시간 + 노드 번호 + 순번), 노드마다 node_id가 달라야 한다.
+ */
+public enum IdStrategy {
+    SEQUENCE, POOLED_LO, SNOWFLAKE;
+
+    /**
+     * sequence, pooled-lo, snowflake (대소문자, -/_ 구분 없음)
+     */
+    public static IdStrategy of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("id 생성 방식은 sequence, pooled-lo, snowflake 중 하나여야 합니다: " + value, e);
+        }
+    }
+}
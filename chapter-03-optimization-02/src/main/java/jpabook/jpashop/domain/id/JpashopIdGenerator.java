@@ -0,0 +1,124 @@
+package jpabook.jpashop.domain.id;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.ExportableProducer;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * 엔티티별 id 생성 방식 선택 (IdStrategy)
+ * - 엔티티 id에 @GeneratedValue(generator = GENERATOR), @GenericGenerator는 domain 패키지(package-info)에 한 번
+ * - 설정은 하이버네이트 설정(spring.jpa.properties)에서 읽는다.
+ *   jpashop.id.strategy.default: 기본 방식, jpashop.id.strategy.엔티티명(Order, Member ...): 엔티티별 방식
+ *   jpashop.id.pooled_lo.allocation_size: POOLED_LO 시퀀스 증가 크기(nextval 1번에 발급할 id 수)
+ *   jpashop.id.snowflake.node_id: SNOWFLAKE 노드 번호 (애플리케이션 인스턴스마다 달라야 한다.)
+ *   SNOWFLAKE를 쓰는데 node_id가 없으면 기동 실패 (모든 인스턴스가 0번으로 같은 id를 발급하지 않게)
+ * - 상속 관계(Item)는 최상위 엔티티 이름으로 설정
+ */
+public class JpashopIdGenerator implements IdentifierGenerator, Configurable, ExportableProducer {
+
+    public static final String GENERATOR = "jpashop-id";
+    public static final String STRATEGY = "jpabook.jpashop.domain.id.JpashopIdGenerator";
+
+    static final String STRATEGY_PREFIX = "jpashop.id.strategy.";
+    static final String DEFAULT_STRATEGY = STRATEGY_PREFIX + "default";
+    static final String ALLOCATION_SIZE = "jpashop.id.pooled_lo.allocation_size";
+    static final String NODE_ID = "jpashop.id.snowflake.node_id";
+
+    private IdStrategy strategy;
+    private SequenceStyleGenerator sequenceGenerator; //SEQUENCE, POOLED_LO
+    private SnowflakeIdGenerator snowflakeGenerator;  //SNOWFLAKE
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<String, Object> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String entityName = simpleName(params.getProperty(IdentifierGenerator.ENTITY_NAME));
+        strategy = IdStrategy.of(setting(settings, entityName));
+
+        switch (strategy) {
+            case SNOWFLAKE:
+                if (settings.get(NODE_ID) == null) {
+                    throw new MappingException(entityName + "는 snowflake id를 쓰므로 " + NODE_ID + "를 지정해야 합니다.");
+                }
+                snowflakeGenerator = new SnowflakeIdGenerator(intSetting(settings, NODE_ID, 0));
+                return;
+            case POOLED_LO:
+                Properties pooled = new Properties();
+                pooled.putAll(params);
+                pooled.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, params.getProperty(PersistentIdentifierGenerator.TABLE) + "_seq");
+                pooled.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(intSetting(settings, ALLOCATION_SIZE, 50)));
+                pooled.setProperty(SequenceStyleGenerator.OPT_PARAM, "pooled-lo");
+                sequenceGenerator = new SequenceStyleGenerator();
+                sequenceGenerator.configure(type, pooled, serviceRegistry);
+                return;
+            case SEQUENCE:
+            default:
+                //@GeneratedValue 기본값과 같이 모든 엔티티가 hibernate_sequence 하나를 1씩
+                Properties sequence = new Properties();
+                sequence.putAll(params);
+                sequence.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, SequenceStyleGenerator.DEF_SEQUENCE_NAME);
+                sequence.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, "1");
+                sequenceGenerator = new SequenceStyleGenerator();
+                sequenceGenerator.configure(type, sequence, serviceRegistry);
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        //시퀀스 DDL
+        if (sequenceGenerator != null) {
+            sequenceGenerator.registerExportables(database);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (snowflakeGenerator != null) {
+            return snowflakeGenerator.nextId();
+        }
+        return sequenceGenerator.generate(session, object);
+    }
+
+    public IdStrategy getStrategy() {
+        return strategy;
+    }
+
+    //jpashop.id.strategy.엔티티명 (대소문자 구분 없이), 없으면 jpashop.id.strategy.default, 없으면 pooled-lo
+    private static String setting(Map<String, Object> settings, String entityName) {
+        for (Map.Entry<String, Object> entry : settings.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(STRATEGY_PREFIX + entityName)) {
+                return String.valueOf(entry.getValue());
+            }
+        }
+        Object value = settings.get(DEFAULT_STRATEGY);
+        return value != null ? String.valueOf(value) : IdStrategy.POOLED_LO.name();
+    }
+
+    private static int intSetting(Map<String, Object> settings, String key, int defaultValue) {
+        Object value = settings.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new MappingException(key + "는 숫자여야 합니다: " + value, e);
+        }
+    }
+
+    private static String simpleName(String entityName) {
+        return entityName.substring(entityName.lastIndexOf('.') + 1);
+    }
+}
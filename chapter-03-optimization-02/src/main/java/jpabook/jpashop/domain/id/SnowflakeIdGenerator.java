@@ -0,0 +1,59 @@
+package jpabook.jpashop.domain.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 64bit 시간 기반 id (snowflake)
+ * - [부호 1bit = 0][EPOCH 이후 밀리초 41bit][노드 번호 10bit][순번 12bit] -> 노드마다 밀리초당 4096개, 2089년까지
+ * - 노드 번호가 다르면 여러 애플리케이션 인스턴스가 동시에 발급해도 겹치지 않는다.
+ * - 상태(밀리초 + 순번)를 CAS로 하나씩 올린다. 순번이 넘치거나 시계가 뒤로 가면 기다리지 않고
+ *   마지막 밀리초에서 이어서 발급(미래 밀리초를 빌려 씀) -> 한 인스턴스 안에서 항상 증가, 중복 없음
+ */
+public class SnowflakeIdGenerator {
+
+    public static final long EPOCH_MILLIS = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    //(EPOCH 이후 밀리초 << SEQUENCE_BITS) | 순번, 마지막으로 발급한 값
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id는 0 ~ " + MAX_NODE_ID + " 사이여야 합니다: " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long next = state.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+
+    /**
+     * id에서 노드 번호
+     */
+    public static int nodeIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    /**
+     * id를 발급한 시간 (빌려 쓴 밀리초면 실제보다 조금 뒤)
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+}
@@ -11,8 +11,10 @@ import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.ManyToMany;
+import javax.persistence.Version;
 
 import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
@@ -24,13 +26,18 @@ import lombok.Setter;
 public abstract class Item {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
     @Column(name = "item_id")
     private Long id;
 
     private String name;
     private int price;
-    private int stockQuantity;
+    private int stockQuantity; //shard를 쓰는 상품은 shard 밖에 남은 재고, 전체 재고는 StockShardService.getTotalStock
+
+    private int stockShards; //재고 shard 수 (ItemStockShard), 0이면 stock_quantity 하나
+
+    @Version
+    private Long version; //동시 수정 감지 (재고 차감 StockStrategy.OPTIMISTIC)
 
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
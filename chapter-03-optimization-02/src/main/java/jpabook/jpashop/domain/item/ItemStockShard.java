@@ -0,0 +1,65 @@
+package jpabook.jpashop.domain.item;
+
+import static javax.persistence.FetchType.LAZY;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 상품 재고 shard (주문이 몰리는 상품의 재고를 여러 row로 나눠서 row 락 경합 분산)
+ * - 상품 재고 = item.stock_quantity + shard 수량 합계 (StockShardService.getTotalStock)
+ * - 주문은 shard 하나에서 조건부 update로 차감, 취소/반환된 재고는 item.stock_quantity로 돌아가고 재분배 때 shard로 옮긴다.
+ */
+@Entity
+@Table(name = "item_stock_shard", uniqueConstraints = @UniqueConstraint(columnNames = {"item_id", "shard_no"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemStockShard {
+
+    @Id @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)
+    @Column(name = "item_stock_shard_id")
+    private Long id;
+
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @Column(name = "shard_no")
+    private int shardNo;
+
+    private int quantity;
+
+    //==생성 메서드==//
+    public static ItemStockShard createItemStockShard(Item item, int shardNo) {
+        ItemStockShard shard = new ItemStockShard();
+        shard.item = item;
+        shard.shardNo = shardNo;
+        return shard;
+    }
+
+    //==비즈니스 로직==//
+    /**
+     * 최대 quantity만큼 차감, 차감한 수량
+     */
+    public int take(int quantity) {
+        int taken = Math.min(this.quantity, quantity);
+        this.quantity -= taken;
+        return taken;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
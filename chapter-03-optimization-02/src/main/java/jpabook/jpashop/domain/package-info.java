@@ -0,0 +1,10 @@
+/**
+ * 엔티티 id 생성기 (JpashopIdGenerator)
+ * - 패키지 수준 @GenericGenerator는 영속성 유닛 전체에서 쓸 수 있으므로 하위 패키지(item) 엔티티도
+ *   id에 @GeneratedValue(generator = JpashopIdGenerator.GENERATOR)만 붙인다.
+ */
+@GenericGenerator(name = JpashopIdGenerator.GENERATOR, strategy = JpashopIdGenerator.STRATEGY)
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.id.JpashopIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
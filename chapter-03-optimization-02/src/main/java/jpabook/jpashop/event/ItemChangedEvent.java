@@ -0,0 +1,24 @@
+package jpabook.jpashop.event;
+
+import jpabook.jpashop.domain.item.Item;
+import lombok.Getter;
+
+/**
+ * 상품 등록/수정 이벤트 (재고 변경은 제외)
+ */
+@Getter
+public class ItemChangedEvent {
+
+    private final Long itemId;
+    private final Item item; //변경 후 상품, 커밋 후에는 읽기만 할 것
+
+    public ItemChangedEvent(Long itemId) {
+        this.itemId = itemId;
+        this.item = null;
+    }
+
+    public ItemChangedEvent(Item item) {
+        this.itemId = item.getId();
+        this.item = item;
+    }
+}
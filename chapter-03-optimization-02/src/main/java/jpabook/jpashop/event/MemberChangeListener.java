@@ -0,0 +1,36 @@
+package jpabook.jpashop.event;
+
+import jpabook.jpashop.domain.Member;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 회원 엔티티가 저장/수정/삭제되면 MemberChangedEvent 발행 (flush 시점, 구독자는 커밋 후 처리)
+ * - 회원 이름은 주문 조회 결과에 포함되므로 주문 조회 캐시는 그 회원의 주문을 담은 항목을 비운다. (OrderReadCache)
+ * - 엔티티 리스너는 스프링 빈으로 등록하지 않는다. 하이버네이트가 SpringBeanContainer를 통해
+ *   스프링 빈 팩토리로 생성하고, 이벤트 발행자는 생성할 때 Aware 콜백으로 받는다.
+ */
+public class MemberChangeListener implements ApplicationEventPublisherAware {
+
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void changed(Member member) {
+        eventPublisher.publishEvent(new MemberChangedEvent(member.getId(), member.getName(), false));
+    }
+
+    @PostRemove
+    public void removed(Member member) {
+        eventPublisher.publishEvent(new MemberChangedEvent(member.getId(), member.getName(), true));
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.event;
+
+import lombok.Getter;
+
+/**
+ * 회원 가입/수정/삭제 이벤트
+ */
+@Getter
+public class MemberChangedEvent {
+
+    private final Long memberId;
+    private final String name;     //변경 후 이름
+    private final boolean removed;
+
+    public MemberChangedEvent(Long memberId) {
+        this(memberId, null, false);
+    }
+
+    public MemberChangedEvent(Long memberId, String name, boolean removed) {
+        this.memberId = memberId;
+        this.name = name;
+        this.removed = removed;
+    }
+}
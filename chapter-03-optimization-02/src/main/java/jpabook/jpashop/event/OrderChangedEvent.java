@@ -0,0 +1,22 @@
+package jpabook.jpashop.event;
+
+import lombok.Getter;
+
+/**
+ * 주문 생성/취소 이벤트
+ */
+@Getter
+public class OrderChangedEvent {
+
+    public enum Type {
+        CREATED, CANCELED
+    }
+
+    private final Long orderId;
+    private final Type type;
+
+    public OrderChangedEvent(Long orderId, Type type) {
+        this.orderId = orderId;
+        this.type = type;
+    }
+}
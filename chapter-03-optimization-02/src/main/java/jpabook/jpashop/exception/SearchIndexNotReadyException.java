@@ -0,0 +1,25 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SearchIndexNotReadyException extends RuntimeException {
+
+    public SearchIndexNotReadyException() {
+        super();
+    }
+
+    public SearchIndexNotReadyException(String message) {
+        super(message);
+    }
+
+    public SearchIndexNotReadyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SearchIndexNotReadyException(Throwable cause) {
+        super(cause);
+    }
+
+}
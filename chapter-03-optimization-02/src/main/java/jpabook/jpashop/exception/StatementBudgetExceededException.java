@@ -0,0 +1,29 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 요청 1번당 SQL 실행 횟수 예산 초과 (StatementBudgetFilter REJECT 모드)
+ * - 과부하가 아니라 서버 코드의 문제(N + 1)이므로 500, 다시 시도해도 같은 결과
+ */
+@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException() {
+        super();
+    }
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+
+    public StatementBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StatementBudgetExceededException(Throwable cause) {
+        super(cause);
+    }
+
+}
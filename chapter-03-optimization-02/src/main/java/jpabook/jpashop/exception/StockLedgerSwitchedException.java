@@ -0,0 +1,24 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 주문 중에 상품의 재고 장부(StockLedger)가 켜지거나 꺼졌다. 바뀐 방식으로 다시 주문하면 된다.
+ */
+public class StockLedgerSwitchedException extends IllegalStateException {
+
+    public StockLedgerSwitchedException() {
+        super();
+    }
+
+    public StockLedgerSwitchedException(String message) {
+        super(message);
+    }
+
+    public StockLedgerSwitchedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StockLedgerSwitchedException(Throwable cause) {
+        super(cause);
+    }
+
+}
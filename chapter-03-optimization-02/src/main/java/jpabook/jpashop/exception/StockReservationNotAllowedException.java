@@ -0,0 +1,28 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 재고 장부(StockLedger)를 쓰는 상품은 예약할 수 없다. 요청은 올바르지만 상품의 현재 상태와 충돌하므로 409
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StockReservationNotAllowedException extends IllegalStateException {
+
+    public StockReservationNotAllowedException() {
+        super();
+    }
+
+    public StockReservationNotAllowedException(String message) {
+        super(message);
+    }
+
+    public StockReservationNotAllowedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StockReservationNotAllowedException(Throwable cause) {
+        super(cause);
+    }
+
+}
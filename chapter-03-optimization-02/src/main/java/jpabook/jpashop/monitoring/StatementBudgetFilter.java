@@ -0,0 +1,67 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 요청 1번당 SQL 실행 횟수 예산 검사
+ * - 운영 트래픽에서 N + 1 문제(지연 로딩 폭증)를 잡아낸다.
+ * - JSON 직렬화 중 지연 로딩(Hibernate5Module FORCE_LAZY_LOADING)까지 포함해서 센다.
+ * - REJECT 모드에서 예산을 넘기면 StatementBudgetExceededException -> 500
+ *   응답이 이미 전송되기 시작했으면(JSON 직렬화 중 버퍼를 넘긴 경우 등) 상태 코드를 바꿀 수 없으므로
+ *   거절하지 않고 로그, 메트릭만 남긴다. (본문이 중간에 끊긴 응답을 보내지 않는다.)
+ * - 비동기 응답(V6.1 NDJSON 스트리밍)은 요청 스레드가 반환된 뒤 실행되는 SQL을 세지 않는다. (예산 적용 제외)
+ * - 메트릭
+ *   jpashop.sql.statements: 요청 1번당 SQL 수
+ *   jpashop.sql.statement_budget.violations: 예산 초과 요청 수
+ */
+@Component
+@RequiredArgsConstructor
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private final StatementCounter statementCounter;
+    private final StatementBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || findPattern(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String pattern = findPattern(request.getRequestURI());
+        statementCounter.begin(pattern, properties.getBudgets().get(pattern), properties.getMode(), response);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCounter.RequestStatements statements = statementCounter.end();
+            meterRegistry.summary("jpashop.sql.statements", "pattern", pattern).record(statements.getCount());
+            if (statements.isExceeded()) {
+                meterRegistry.counter("jpashop.sql.statement_budget.violations",
+                        "pattern", pattern, "mode", statements.mode.name()).increment();
+            }
+        }
+    }
+
+    private String findPattern(String uri) {
+        for (Map.Entry<String, Integer> budget : properties.getBudgets().entrySet()) {
+            if (pathMatcher.match(budget.getKey(), uri)) {
+                return budget.getKey();
+            }
+        }
+        return null;
+    }
+}
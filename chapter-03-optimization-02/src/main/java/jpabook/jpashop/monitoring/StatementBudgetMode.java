@@ -0,0 +1,10 @@
+package jpabook.jpashop.monitoring;
+
+/**
+ * SQL 실행 횟수 예산 초과시 처리 방식
+ */
+public enum StatementBudgetMode {
+    METRIC, //위반 메트릭만 기록
+    LOG,    //메트릭 + 스택 샘플 로그
+    REJECT  //메트릭 + 예외를 던져서 요청 실패
+}
@@ -0,0 +1,23 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 요청 1번당 SQL 실행 횟수 예산 설정
+ * - budgets: URL 패턴(Ant) -> 허용 횟수, 먼저 선언한 패턴이 우선
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.statement-budget")
+@Getter @Setter
+public class StatementBudgetProperties {
+
+    private boolean enabled = true;
+    private StatementBudgetMode mode = StatementBudgetMode.LOG;
+    private Map<String, Integer> budgets = new LinkedHashMap<>();
+}
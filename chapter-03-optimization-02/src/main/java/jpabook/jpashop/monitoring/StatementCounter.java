@@ -0,0 +1,111 @@
+package jpabook.jpashop.monitoring;
+
+import jpabook.jpashop.exception.StatementBudgetExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 요청 스레드에서 실행되는 SQL 수를 센다.
+ * - 하이버네이트 StatementInspector로 등록되어 모든 SQL 실행 직전에 호출된다.
+ * - StatementBudgetFilter가 요청 시작/종료시 begin/end 호출
+ * - 요청 스레드 밖에서 실행되는 SQL은 propagate로 감싼 작업만 센다. (InClauseQueryExecutor parallel 조회)
+ *   StreamingResponseBody처럼 요청 스레드가 끝난 뒤 실행되는 SQL은 세지 않는다.
+ * - REJECT는 응답이 커밋되기 전에만 예외, 커밋된 뒤에는 LOG처럼 로그만 남긴다.
+ */
+@Slf4j
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+
+    void begin(String pattern, int budget, StatementBudgetMode mode, HttpServletResponse response) {
+        current.set(new RequestStatements(pattern, budget, mode, response));
+    }
+
+    RequestStatements end() {
+        RequestStatements statements = current.get();
+        current.remove();
+        return statements;
+    }
+
+    /**
+     * 현재 요청의 카운터를 다른 스레드에서 실행할 작업에 넘긴다.
+     * - 작업이 실행한 SQL도 요청의 예산에 포함 (REJECT면 작업에서 예외)
+     */
+    public <T> Supplier<T> propagate(Supplier<T> task) {
+        RequestStatements statements = current.get();
+        if (statements == null) {
+            return task;
+        }
+        return () -> {
+            RequestStatements previous = current.get();
+            current.set(statements);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        };
+    }
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements statements = current.get();
+        if (statements != null && statements.increment()) {
+            if (statements.mode == StatementBudgetMode.LOG || statements.isCommitted()) {
+                //예산을 처음 넘긴 SQL이 어디서 실행됐는지 스택을 남긴다.
+                log.warn("SQL 실행 횟수 예산 초과 pattern={}, budget={}, sql={}",
+                        statements.pattern, statements.budget, sql, new Throwable("stack sample"));
+            } else if (statements.mode == StatementBudgetMode.REJECT) {
+                throw new StatementBudgetExceededException(
+                        "SQL 실행 횟수 예산 초과 pattern=" + statements.pattern + ", budget=" + statements.budget);
+            }
+        }
+        return sql;
+    }
+
+    static class RequestStatements {
+
+        final String pattern;
+        final int budget;
+        final StatementBudgetMode mode;
+        private final HttpServletResponse response;
+        private final AtomicInteger count = new AtomicInteger(); //propagate한 작업 스레드에서도 증가
+
+        RequestStatements(String pattern, int budget, StatementBudgetMode mode, HttpServletResponse response) {
+            this.pattern = pattern;
+            this.budget = budget;
+            this.mode = mode;
+            this.response = response;
+        }
+
+        //응답 상태 코드, 헤더가 이미 전송됐는지
+        boolean isCommitted() {
+            return response != null && response.isCommitted();
+        }
+
+        /**
+         * @return 이번 SQL로 예산을 처음 넘겼으면 true
+         */
+        boolean increment() {
+            return count.incrementAndGet() == budget + 1;
+        }
+
+        int getCount() {
+            return count.get();
+        }
+
+        boolean isExceeded() {
+            return count.get() > budget;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 키 단위 조회를 모아서 IN 쿼리 1번으로 실행 (DataLoader 방식)
+ * - load(key)는 바로 조회하지 않고 키를 모아두고 CompletableFuture를 돌려준다.
+ * - dispatch()에서 모아둔 키를 batch 함수로 한 번에 조회하고 future를 완료한다.
+ * - 같은 키는 한 번만 조회 (loader가 살아있는 동안 memoize, 보통 요청 단위 -> BatchLoaders)
+ * - 요청 스레드 하나에서 사용하는 것을 전제로 동기화하지 않는다.
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<List<K>, Map<K, V>> batchFunction;
+    private final V defaultValue; //batch 결과에 없는 키의 값
+
+    private final Map<K, CompletableFuture<V>> futures = new HashMap<>();
+    private final List<K> pendingKeys = new ArrayList<>();
+
+    public BatchLoader(Function<List<K>, Map<K, V>> batchFunction, V defaultValue) {
+        this.batchFunction = batchFunction;
+        this.defaultValue = defaultValue;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        return futures.computeIfAbsent(key, k -> {
+            pendingKeys.add(k);
+            return new CompletableFuture<>();
+        });
+    }
+
+    /**
+     * 모아둔 키를 한 번에 조회
+     * - 조회 실패시 대기 중인 future를 모두 예외로 완료하고 예외를 다시 던진다.
+     */
+    public void dispatch() {
+        if (pendingKeys.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(pendingKeys);
+        pendingKeys.clear();
+
+        Map<K, V> result;
+        try {
+            result = batchFunction.apply(Collections.unmodifiableList(keys));
+        } catch (RuntimeException e) {
+            keys.forEach(key -> futures.remove(key).completeExceptionally(e));
+            throw e;
+        }
+        keys.forEach(key -> futures.get(key).complete(result.getOrDefault(key, defaultValue)));
+    }
+
+    /**
+     * 단건 조회 - 대기 중인 키가 있으면 함께 조회
+     */
+    public V get(K key) {
+        CompletableFuture<V> future = load(key);
+        if (!future.isDone()) {
+            dispatch();
+        }
+        return future.join();
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 요청 단위 BatchLoader 보관소
+ * - 같은 요청 안에서는 이름이 같은 loader를 공유해서 결과를 memoize
+ * - HTTP 요청 밖(배치, 테스트 등)에서는 호출할 때마다 새 loader
+ */
+@Component
+public class BatchLoaders {
+
+    private static final String ATTRIBUTE_PREFIX = BatchLoaders.class.getName() + ".";
+
+    @SuppressWarnings("unchecked")
+    public <K, V> BatchLoader<K, V> get(String name, Function<List<K>, Map<K, V>> batchFunction, V defaultValue) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new BatchLoader<>(batchFunction, defaultValue);
+        }
+
+        String attributeName = ATTRIBUTE_PREFIX + name;
+        BatchLoader<K, V> loader = (BatchLoader<K, V>) attributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+        if (loader == null) {
+            loader = new BatchLoader<>(batchFunction, defaultValue);
+            attributes.setAttribute(attributeName, loader, RequestAttributes.SCOPE_REQUEST);
+        }
+        return loader;
+    }
+}
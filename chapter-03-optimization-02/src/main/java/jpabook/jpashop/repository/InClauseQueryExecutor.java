@@ -0,0 +1,143 @@
+package jpabook.jpashop.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.monitoring.StatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * IN 절 분할 조회
+ * - id 목록을 chunkSize 단위로 나눠서 조회 -> 쿼리 하나에 수천 개의 파라미터가 들어가지 않는다.
+ * - 각 chunk는 2의 거듭제곱 크기로 채워서(마지막 id 반복) 몇 개 안 되는 쿼리 플랜만 재사용한다.
+ * - parallel 옵션을 켜면 chunk마다 별도 커넥션(EntityManager)으로 동시에 조회한다.
+ *   별도 커넥션이므로 현재 트랜잭션에서 아직 커밋하지 않은 데이터는 보이지 않는다.
+ *   chunk 조회 SQL도 요청의 SQL 실행 횟수 예산에 포함 (StatementCounter.propagate)
+ */
+@Component
+public class InClauseQueryExecutor {
+
+    private final EntityManagerFactory emf;
+    private final StatementCounter statementCounter;
+    private final int chunkSize;
+    private final ExecutorService executor; //parallel 옵션이 꺼져 있으면 null
+
+    private final DistributionSummary chunkCount;
+    private final Timer chunkTimer;
+
+    public InClauseQueryExecutor(EntityManagerFactory emf,
+                                 StatementCounter statementCounter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${jpashop.in-clause.chunk-size:512}") int chunkSize,
+                                 @Value("${jpashop.in-clause.parallel:false}") boolean parallel,
+                                 @Value("${jpashop.in-clause.parallelism:4}") int parallelism) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("jpashop.in-clause.chunk-size는 1 이상이어야 합니다.");
+        }
+        this.emf = emf;
+        this.statementCounter = statementCounter;
+        this.chunkSize = chunkSize;
+        this.executor = parallel ? Executors.newFixedThreadPool(parallelism, daemonThreads()) : null;
+        this.chunkCount = DistributionSummary.builder("jpashop.in_clause.chunks")
+                .description("IN 절 조회 1번당 chunk 수")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("jpashop.in_clause.chunk")
+                .description("IN 절 chunk 1개 조회 시간")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ids를 chunk로 나눠서 query를 실행하고 결과를 합친다.
+     * @param em    순차 조회시 사용할 현재 EntityManager
+     * @param query (EntityManager, chunk) -> 결과
+     */
+    public <K, R> List<R> query(EntityManager em, List<K> ids, BiFunction<EntityManager, List<K>, List<R>> query) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<List<K>> chunks = split(ids, chunkSize);
+        chunkCount.record(chunks.size());
+
+        if (executor == null || chunks.size() == 1) {
+            List<R> result = new ArrayList<>();
+            for (List<K> chunk : chunks) {
+                result.addAll(chunkTimer.record(() -> query.apply(em, chunk)));
+            }
+            return result;
+        }
+
+        List<CompletableFuture<List<R>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(
+                        statementCounter.propagate(() -> queryWithNewEntityManager(chunk, query)), executor))
+                .collect(toList());
+
+        List<R> result = new ArrayList<>();
+        for (CompletableFuture<List<R>> future : futures) {
+            result.addAll(future.join());
+        }
+        return result;
+    }
+
+    private <K, R> List<R> queryWithNewEntityManager(List<K> chunk, BiFunction<EntityManager, List<K>, List<R>> query) {
+        EntityManager chunkEm = emf.createEntityManager();
+        try {
+            return chunkTimer.record(() -> query.apply(chunkEm, chunk));
+        } finally {
+            chunkEm.close();
+        }
+    }
+
+    /**
+     * chunkSize 단위로 나누고, 모자란 chunk는 마지막 값을 반복해서 2의 거듭제곱 크기(최대 chunkSize)로 채운다.
+     * 예) chunkSize=8, ids=11개 -> [8개], [3개 + 1개 채움 = 4개]
+     */
+    public static <K> List<List<K>> split(List<K> ids, int chunkSize) {
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<K> chunk = new ArrayList<>(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            int paddedSize = Math.min(nextPowerOfTwo(chunk.size()), chunkSize);
+            K last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < paddedSize) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger sequence = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "in-clause-query-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
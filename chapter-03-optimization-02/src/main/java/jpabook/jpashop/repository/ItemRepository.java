@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import java.util.List;
 
 @Repository
@@ -29,4 +30,138 @@ public class ItemRepository {
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
     }
+
+    public List<Item> findAll(List<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 재고 shard를 쓰지 않는 상품을 item_id 순으로 select ... for update (일괄 주문용)
+     * - 여러 상품을 잡는 트랜잭션끼리 같은 순서로 잡으므로 교착 상태가 생기지 않는다.
+     */
+    public List<Item> findAllUnshardedForUpdate(List<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids and i.stockShards = 0 order by i.id", Item.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * item_id 순 키셋 조회 (검색 인덱스 재구성용)
+     */
+    public List<Item> findAll(Long lastItemId, int limit) {
+        return em.createQuery("select i from Item i where i.id > :lastItemId order by i.id", Item.class)
+                .setParameter("lastItemId", lastItemId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * select ... for update (PESSIMISTIC_WRITE 재고 차감용)
+     */
+    public Item findOneForUpdate(Long id) {
+        return em.find(Item.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 재고가 충분할 때만 차감 (조건부 update 1번, 읽고 쓰는 사이에 다른 주문이 끼어들 수 없다)
+     * - version도 올려서 엔티티로 수정하던 다른 트랜잭션이 충돌을 알 수 있게 한다.
+     * - 차감된 row 수 (0이면 재고 부족)
+     */
+    public int removeStock(Long id, int quantity) {
+        return em.createQuery("update Item i set i.stockQuantity = i.stockQuantity - :quantity, i.version = i.version + 1" +
+                " where i.id = :id and i.stockQuantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * 재고 반환 (예약 만료/해제)
+     */
+    public void addStock(Long id, int quantity) {
+        em.createQuery("update Item i set i.stockQuantity = i.stockQuantity + :quantity, i.version = i.version + 1" +
+                " where i.id = :id")
+                .setParameter("quantity", quantity)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * 재고 shard를 쓰는 상품 id
+     */
+    public List<Long> findStockShardedItemIds() {
+        return em.createQuery("select i.id from Item i where i.stockShards > 0 order by i.id", Long.class)
+                .getResultList();
+    }
+
+    /**
+     * 변경 내용을 바로 DB에 반영 (OPTIMISTIC 차감에서 update로 row 락을 먼저 잡을 때)
+     */
+    public void flush() {
+        em.flush();
+    }
+
+    public void refresh(Item item) {
+        em.refresh(item);
+    }
+
+    /**
+     * 이미 조회한 상품을 select ... for update로 다시 읽기 (version 검사 없이 최신 상태로)
+     */
+    public void refreshForUpdate(Item item) {
+        em.refresh(item, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 재고 미반영(stockPending) 주문상품이 있는 상품 id
+     */
+    public List<Long> findStockPendingItemIds() {
+        return em.createQuery("select distinct oi.item.id from OrderItem oi where oi.stockPending = true", Long.class)
+                .getResultList();
+    }
+
+    /**
+     * 상품의 재고 미반영 주문상품 [order_item_id, count]
+     */
+    public List<Object[]> findStockPending(Long itemId, int limit) {
+        return em.createQuery("select oi.id, oi.count from OrderItem oi" +
+                " where oi.item.id = :itemId and oi.stockPending = true order by oi.id", Object[].class)
+                .setParameter("itemId", itemId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 상품의 재고 미반영 수량 합계
+     */
+    public long sumStockPending(Long itemId) {
+        return em.createQuery("select coalesce(sum(oi.count), 0) from OrderItem oi" +
+                " where oi.item.id = :itemId and oi.stockPending = true", Long.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult();
+    }
+
+    /**
+     * 재고 미반영 주문상품을 재고에 반영 (같은 트랜잭션에서 stockPending 해제 + 재고 차감)
+     * - 조회한 뒤에 취소된 주문상품이 있으면 반영하지 않고 false (트랜잭션을 롤백하고 다시 조회할 것)
+     * - 차감 가능한 만큼만 예약했으므로 재고 조건 없이 차감
+     */
+    public boolean applyStockPending(Long itemId, List<Long> orderItemIds, int quantity) {
+        int released = em.createQuery("update OrderItem oi set oi.stockPending = false, oi.version = oi.version + 1" +
+                " where oi.id in :ids and oi.stockPending = true")
+                .setParameter("ids", orderItemIds)
+                .executeUpdate();
+        if (released != orderItemIds.size()) {
+            return false;
+        }
+        em.createQuery("update Item i set i.stockQuantity = i.stockQuantity - :quantity, i.version = i.version + 1" +
+                " where i.id = :id")
+                .setParameter("quantity", quantity)
+                .setParameter("id", itemId)
+                .executeUpdate();
+        return true;
+    }
 }
@@ -0,0 +1,87 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.ItemStockShard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemStockShardRepository {
+
+    private final EntityManager em;
+
+    public void save(ItemStockShard shard) {
+        em.persist(shard);
+    }
+
+    public List<ItemStockShard> findAll(Long itemId) {
+        return em.createQuery("select s from ItemStockShard s where s.item.id = :itemId order by s.shardNo", ItemStockShard.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * 상품의 shard를 shard_no 순으로 select ... for update
+     * - 여러 shard를 잡는 쪽(재분배, 여러 shard에 걸친 주문)은 항상 shard_no 순 -> item row 순으로 락을 잡는다.
+     */
+    public List<ItemStockShard> findAllForUpdate(Long itemId) {
+        return em.createQuery("select s from ItemStockShard s where s.item.id = :itemId order by s.shardNo", ItemStockShard.class)
+                .setParameter("itemId", itemId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 상품의 shard 수량 합계
+     */
+    public int sumQuantity(Long itemId) {
+        return em.createQuery("select coalesce(sum(s.quantity), 0) from ItemStockShard s where s.item.id = :itemId", Long.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult()
+                .intValue();
+    }
+
+    /**
+     * 상품별 shard 수량 합계 [item_id, 합계] (shard가 없는 상품은 빠진다.)
+     */
+    public List<Object[]> sumQuantities(List<Long> itemIds) {
+        return em.createQuery("select s.item.id, sum(s.quantity) from ItemStockShard s" +
+                " where s.item.id in :itemIds group by s.item.id", Object[].class)
+                .setParameter("itemIds", itemIds)
+                .getResultList();
+    }
+
+    /**
+     * 반환된 재고를 shard에 더함 (예약 해제/만료), 더한 row 수
+     */
+    public int addStock(Long itemId, int shardNo, int quantity) {
+        return em.createQuery("update ItemStockShard s set s.quantity = s.quantity + :quantity" +
+                " where s.item.id = :itemId and s.shardNo = :shardNo")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("shardNo", shardNo)
+                .executeUpdate();
+    }
+
+    /**
+     * shard 수량이 충분할 때만 차감, 차감된 row 수 (0이면 수량 부족)
+     */
+    public int removeStock(Long itemId, int shardNo, int quantity) {
+        return em.createQuery("update ItemStockShard s set s.quantity = s.quantity - :quantity" +
+                " where s.item.id = :itemId and s.shardNo = :shardNo and s.quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .setParameter("shardNo", shardNo)
+                .executeUpdate();
+    }
+
+    public void deleteAll(Long itemId) {
+        em.createQuery("delete from ItemStockShard s where s.item.id = :itemId")
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+}
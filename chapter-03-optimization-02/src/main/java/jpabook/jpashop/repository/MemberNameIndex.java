@@ -0,0 +1,202 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.event.MemberChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 이름 부분 문자열 검색용 trigram 인덱스 (애플리케이션 메모리)
+ * - like '%name%'는 앞에 %가 있어서 인덱스를 못 타고 member 전체를 읽는다.
+ * - 이름을 3글자씩 잘라서(trigram) 회원 id 목록을 만들어두고, 검색어의 trigram 목록을 교집합해서 후보를 찾는다.
+ * - 후보는 실제 이름에 검색어가 포함되는지 다시 확인 (trigram이 모두 있어도 붙어있지 않을 수 있음)
+ * - 3글자 미만 검색어는 trigram이 없으므로 메모리의 이름 목록을 훑는다.
+ * - 기동시 DB에서 재구성, 이후 회원 변경 커밋(AFTER_COMMIT)마다 갱신
+ *   커밋된 데이터만 반영되고, 다른 애플리케이션 인스턴스의 변경은 재기동 전까지 보이지 않는다.
+ *   현재 트랜잭션에서 flush한 회원 변경은 hasPendingChanges로 알려주고, 조회하는 쪽(OrderRepository)이 like 검색으로 대신한다.
+ */
+@Slf4j
+@Component
+public class MemberNameIndex {
+
+    private static final int GRAM = 3;
+
+    private final MemberRepository memberRepository;
+
+    private volatile Map<Long, String> names = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    //재구성하는 동안 들어온 변경, 재구성이 끝나면 순서대로 다시 적용
+    private List<MemberChangedEvent> pending;
+
+    public MemberNameIndex(MemberRepository memberRepository) {
+        this.memberRepository = memberRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 이름에 keyword가 포함된 회원 id
+     */
+    public Set<Long> findMemberIds(String keyword) {
+        Map<Long, String> names = this.names;
+        Set<Long> result = new HashSet<>();
+        if (keyword.length() < GRAM) {
+            names.forEach((id, name) -> {
+                if (name.contains(keyword)) {
+                    result.add(id);
+                }
+            });
+            return result;
+        }
+
+        //회원 수가 가장 적은 trigram부터 교집합
+        Map<String, Set<Long>> postings = this.postings;
+        List<Set<Long>> candidates = new ArrayList<>();
+        for (String gram : grams(keyword)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return result;
+            }
+            candidates.add(ids);
+        }
+        candidates.sort(Comparator.comparingInt(Set::size));
+
+        for (Long id : candidates.get(0)) {
+            if (containsAll(candidates, id)) {
+                String name = names.get(id);
+                if (name != null && name.contains(keyword)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * DB에서 인덱스 재구성 (기동시)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        Map<Long, String> newNames = new ConcurrentHashMap<>();
+        Map<String, Set<Long>> newPostings = new ConcurrentHashMap<>();
+        for (Object[] row : memberRepository.findAllIdAndName()) {
+            if (row[1] != null) {
+                put(newNames, newPostings, (Long) row[0], (String) row[1]);
+            }
+        }
+
+        synchronized (this) {
+            names = newNames;
+            postings = newPostings;
+            pending.forEach(this::apply);
+            pending = null;
+            ready = true;
+        }
+        log.info("member name index rebuilt: {} members, {} grams", newNames.size(), newPostings.size());
+    }
+
+    /**
+     * 현재 트랜잭션에서 flush했지만 아직 커밋하지 않은 회원 변경이 있는지
+     */
+    public boolean hasPendingChanges() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    //flush 시점(트랜잭션 안)에 받아서 트랜잭션이 끝날 때까지 표시
+    @EventListener
+    public void onMemberFlushed(MemberChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || hasPendingChanges()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberNameIndex.this);
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public synchronized void onMemberChanged(MemberChangedEvent event) {
+        if (pending != null) {
+            pending.add(event);
+        }
+        apply(event);
+    }
+
+    private void apply(MemberChangedEvent event) {
+        if (event.isRemoved() || event.getName() == null) {
+            remove(event.getMemberId());
+        } else {
+            put(names, postings, event.getMemberId(), event.getName());
+        }
+    }
+
+    private void remove(Long memberId) {
+        String name = names.remove(memberId);
+        if (name != null) {
+            removeGrams(postings, memberId, name);
+        }
+    }
+
+    private static void put(Map<Long, String> names, Map<String, Set<Long>> postings, Long memberId, String name) {
+        String oldName = names.put(memberId, name);
+        if (oldName != null) {
+            removeGrams(postings, memberId, oldName);
+        }
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(memberId);
+        }
+    }
+
+    private static void removeGrams(Map<String, Set<Long>> postings, Long memberId, String name) {
+        for (String gram : grams(name)) {
+            postings.computeIfPresent(gram, (g, ids) -> {
+                ids.remove(memberId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static boolean containsAll(List<Set<Long>> candidates, Long id) {
+        for (int i = 1; i < candidates.size(); i++) {
+            if (!candidates.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Set<String> grams(String text) {
+        if (text.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -26,9 +26,24 @@ public class MemberRepository {
                 .getResultList();
     }
 
+    public List<Member> findAll(List<Long> ids) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
                 .setParameter("name", name)
                 .getResultList();
     }
+
+    /**
+     * 회원 이름 인덱스(MemberNameIndex) 재구성용
+     * - 엔티티를 영속성 컨텍스트에 올리지 않고 id, name만 조회
+     */
+    public List<Object[]> findAllIdAndName() {
+        return em.createQuery("select m.id, m.name from Member m", Object[].class)
+                .getResultList();
+    }
 }
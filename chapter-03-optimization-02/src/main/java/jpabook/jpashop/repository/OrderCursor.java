@@ -0,0 +1,57 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋(seek) 페이징 커서
+ * - 마지막으로 조회한 order_id를 클라이언트가 해석할 수 없는 토큰으로 감싼다.
+ * - 토큰이 없으면 첫 페이지
+ */
+@Getter
+public class OrderCursor {
+
+    private static final OrderCursor FIRST = new OrderCursor(null);
+
+    private final Long lastOrderId; //마지막으로 조회한 주문번호, 첫 페이지는 null
+
+    private OrderCursor(Long lastOrderId) {
+        this.lastOrderId = lastOrderId;
+    }
+
+    public static OrderCursor first() {
+        return FIRST;
+    }
+
+    public static OrderCursor after(Long lastOrderId) {
+        return new OrderCursor(lastOrderId);
+    }
+
+    public boolean isFirst() {
+        return lastOrderId == null;
+    }
+
+    public String encode() {
+        if (isFirst()) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastOrderId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return first();
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            return after(Long.valueOf(decoded));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestParameterException("잘못된 커서입니다: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * 주문 조회 fetch plan (Order에 선언한 @NamedEntityGraph)
+ * - 조회 쿼리는 하나로 두고 화면(API)마다 필요한 연관관계만 load graph 힌트로 함께 조회
+ * - NONE: 연관관계는 지연 로딩
+ * - SUMMARY(order.summary): member, delivery
+ * - FULL(order.full): member, delivery, orderItems.item (컬렉션 포함 -> 페이징은 order_id 페이징 후 2단계 조회)
+ */
+public enum OrderGraph {
+
+    NONE(null, false),
+    SUMMARY(Order.GRAPH_SUMMARY, false),
+    FULL(Order.GRAPH_FULL, true);
+
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
+    private final String graphName;
+    private final boolean collection; //컬렉션 fetch 포함 여부
+
+    OrderGraph(String graphName, boolean collection) {
+        this.graphName = graphName;
+        this.collection = collection;
+    }
+
+    public boolean hasCollection() {
+        return collection;
+    }
+
+    public <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query) {
+        if (graphName == null) {
+            return query;
+        }
+        return query.setHint(LOAD_GRAPH, em.getEntityGraph(graphName));
+    }
+}
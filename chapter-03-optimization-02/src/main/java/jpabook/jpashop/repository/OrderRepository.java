@@ -2,22 +2,39 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Order;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public class OrderRepository {
 
     private final EntityManager em;
+    private final MemberNameIndex memberNameIndex;
+    private final int memberNameMaxIds;
 
-    public OrderRepository(EntityManager em) {
+    public OrderRepository(EntityManager em, MemberNameIndex memberNameIndex,
+                           @Value("${jpashop.member-name-index.max-ids:1000}") int memberNameMaxIds) {
         this.em = em;
+        this.memberNameIndex = memberNameIndex;
+        this.memberNameMaxIds = memberNameMaxIds;
     }
 
     public void save(Order order) {
@@ -29,10 +46,23 @@ public class OrderRepository {
     }
 
     public List<Order> findAll() {
-        return em.createQuery("select o from Order o", Order.class)
+        return findAll(OrderGraph.NONE);
+    }
+
+    /**
+     * fetch plan을 지정해서 전체 조회
+     * - 컬렉션을 포함한 graph는 distinct로 중복 주문 제거
+     */
+    public List<Order> findAll(OrderGraph graph) {
+        String jpql = graph.hasCollection() ? "select distinct o from Order o" : "select o from Order o";
+        return graph.apply(em, em.createQuery(jpql, Order.class))
                 .getResultList();
     }
 
+    /**
+     * JPQL 문자열 조립 예제 (회원 이름, 주문 상태만, 최대 1000건)
+     * - 주문시간/회원 id/주문 금액 조건과 페이징은 findAllBySearch
+     */
     public List<Order> findAllByString(OrderSearch orderSearch) {
 
             String jpql = "select o from Order o join o.member m";
@@ -74,13 +104,14 @@ public class OrderRepository {
     }
 
     /**
-     * JPA Criteria
+     * JPA Criteria 예제 (회원 이름, 주문 상태만, 최대 1000건)
+     * - 주문시간/회원 id/주문 금액 조건과 페이징은 findAllBySearch
+     * - 회원 이름은 MemberNameIndex로 회원 id를 먼저 찾고 member 조인 없이 member_id IN 조회
      */
     public List<Order> findAllByCriteria(OrderSearch orderSearch) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
         Root<Order> o = cq.from(Order.class);
-        Join<Object, Object> m = o.join("member", JoinType.INNER);
 
         List<Predicate> criteria = new ArrayList<>();
 
@@ -91,9 +122,18 @@ public class OrderRepository {
         }
         //회원 이름 검색
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            Predicate name =
-                    cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
-            criteria.add(name);
+            Set<Long> memberIds = findMemberIdsByName(orderSearch.getMemberName());
+            if (memberIds == null) {
+                Join<Object, Object> m = o.join("member", JoinType.INNER);
+                Predicate name =
+                        cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
+                criteria.add(name);
+            } else if (memberIds.isEmpty()) {
+                return new ArrayList<>();
+            } else {
+                //orders.member_id 인덱스(FK)로 조회
+                criteria.add(o.get("member").get("id").in(memberIds));
+            }
         }
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
@@ -101,32 +141,246 @@ public class OrderRepository {
         return query.getResultList();
     }
 
+    /**
+     * 주문 검색 (주문시간, 주문번호 순 키셋 페이징)
+     * - 1단계: 조건에 맞는 order_id만 인덱스로 조회 (상태/회원 + 주문시간 복합 인덱스, Order @Table 참고)
+     * - 2단계: findAllByIds로 member, delivery fetch join
+     * - 한 페이지를 넘는 결과는 잘라내지 않고 다음 커서로 이어서 조회
+     */
+    public List<Order> findAllBySearch(OrderSearch orderSearch, OrderSearchCursor cursor, int limit) {
+        Set<Long> memberIds = null;
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            memberIds = findMemberIdsByName(orderSearch.getMemberName());
+            if (memberIds != null && memberIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        SearchQuery searchQuery = searchQuery(orderSearch, cursor, memberIds);
+        if (searchQuery == null) {
+            return new ArrayList<>();
+        }
+
+        TypedQuery<Long> query = em.createQuery(searchQuery.getJpql(), Long.class)
+                .setMaxResults(limit);
+        searchQuery.getParameters().forEach(query::setParameter);
+        return findAllByIds(OrderGraph.SUMMARY, query.getResultList());
+    }
+
+    /**
+     * 주문 검색 1단계 JPQL
+     * - memberIds: 회원 이름 인덱스로 찾은 회원 id, null이면 member 조인 후 like 검색
+     * - 회원 id 조건과 이름 조건이 겹치지 않으면 null (결과 없음)
+     * - 주문 금액은 비정규화 테이블(order_summary)에서 조회 (주문상품 집계 없이)
+     *   요약이 아직 없는 주문(요약 재생성 전 데이터 등)은 빠지지 않게 left join 후 주문상품 합계로 대신한다.
+     */
+    SearchQuery searchQuery(OrderSearch orderSearch, OrderSearchCursor cursor, Set<Long> memberIds) {
+        StringBuilder jpql = new StringBuilder("select o.id from Order o");
+        List<String> where = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if (orderSearch.getMemberId() != null) {
+            if (memberIds != null && !memberIds.contains(orderSearch.getMemberId())) {
+                return null;
+            }
+            where.add("o.member.id = :memberId");
+            parameters.put("memberId", orderSearch.getMemberId());
+        } else if (memberIds != null) {
+            where.add("o.member.id in :memberIds");
+            parameters.put("memberIds", new ArrayList<>(memberIds));
+        }
+        if (memberIds == null && StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql.append(" join o.member m");
+            where.add("m.name like :memberName");
+            parameters.put("memberName", "%" + orderSearch.getMemberName() + "%");
+        }
+        if (orderSearch.getOrderStatus() != null) {
+            where.add("o.status = :status");
+            parameters.put("status", orderSearch.getOrderStatus());
+        }
+        if (orderSearch.getOrderDateFrom() != null) {
+            where.add("o.orderDate >= :orderDateFrom");
+            parameters.put("orderDateFrom", orderSearch.getOrderDateFrom());
+        }
+        if (orderSearch.getOrderDateTo() != null) {
+            where.add("o.orderDate < :orderDateTo");
+            parameters.put("orderDateTo", orderSearch.getOrderDateTo());
+        }
+        if (orderSearch.getMinTotal() != null || orderSearch.getMaxTotal() != null) {
+            jpql.append(" left join OrderSummary s on s.id = o.id");
+            String totalPrice = "coalesce(s.totalPrice, (select coalesce(sum(oi.orderPrice * oi.count), 0)" +
+                    " from OrderItem oi where oi.order = o))";
+            if (orderSearch.getMinTotal() != null) {
+                where.add(totalPrice + " >= :minTotal");
+                parameters.put("minTotal", orderSearch.getMinTotal());
+            }
+            if (orderSearch.getMaxTotal() != null) {
+                where.add(totalPrice + " <= :maxTotal");
+                parameters.put("maxTotal", orderSearch.getMaxTotal());
+            }
+        }
+        if (!cursor.isFirst()) {
+            //앞의 >= 조건은 인덱스 범위 검색용 (or 조건만으로는 인덱스를 못 탄다)
+            where.add("o.orderDate >= :lastOrderDate");
+            where.add("(o.orderDate > :lastOrderDate or o.id > :lastOrderId)");
+            parameters.put("lastOrderDate", cursor.getLastOrderDate());
+            parameters.put("lastOrderId", cursor.getLastOrderId());
+        }
+
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        jpql.append(" order by o.orderDate, o.id");
+        return new SearchQuery(jpql.toString(), parameters);
+    }
+
+    /**
+     * 회원 이름 인덱스로 회원 id 조회
+     * - 인덱스가 아직 준비되지 않았거나 후보가 너무 많으면(IN 절이 커지면) null -> like 검색
+     * - 인덱스는 커밋된 변경만 반영하므로 현재 트랜잭션에 회원 변경이 있을 수 있으면 null -> like 검색
+     *   flush한 회원 변경(MemberNameIndex.hasPendingChanges), flush 전 변경은 영속성 컨텍스트 dirty 확인
+     *   (like 검색 쿼리가 member를 읽으므로 하이버네이트가 먼저 flush한다.)
+     */
+    private Set<Long> findMemberIdsByName(String memberName) {
+        if (!memberNameIndex.isReady() || hasUncommittedChanges()) {
+            return null;
+        }
+        Set<Long> memberIds = memberNameIndex.findMemberIds(memberName);
+        return memberIds.size() > memberNameMaxIds ? null : memberIds;
+    }
+
+    private boolean hasUncommittedChanges() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        return memberNameIndex.hasPendingChanges() || em.unwrap(Session.class).isDirty();
+    }
+
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
-                "select o from Order o" +
-                        " join fetch o.member m" +
-                        " join fetch o.delivery d", Order.class)
-                .getResultList();
+        return findAll(OrderGraph.SUMMARY);
     }
 
     public List<Order> findAllWithItem() {
-        return em.createQuery(
-                "select distinct o from Order o" +
-                        " join fetch o.member m" +
-                        " join fetch o.delivery d" +
-                        " join fetch o.orderItems oi" +
-                        " join fetch oi.item i", Order.class)
-                .getResultList();
+        return findAll(OrderGraph.FULL);
     }
 
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return em.createQuery(
-                "select o from Order o" +
-                        " join fetch o.member m" +
-                        " join fetch o.delivery d", Order.class)
+        return findAll(OrderGraph.SUMMARY, offset, limit);
+    }
+
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        return findAll(OrderGraph.SUMMARY, cursor, limit);
+    }
+
+    /**
+     * fetch plan을 지정해서 offset 페이징 (order_id 순)
+     */
+    public List<Order> findAll(OrderGraph graph, int offset, int limit) {
+        return findAll(graph, OrderSort.ID, offset, limit);
+    }
+
+    /**
+     * fetch plan, 정렬을 지정해서 offset 페이징
+     * - 컬렉션을 포함한 fetch plan은 2단계로 조회 (findAllByIds)
+     */
+    public List<Order> findAll(OrderGraph graph, OrderSort sort, int offset, int limit) {
+        if (graph.hasCollection()) {
+            List<Long> ids = em.createQuery("select o.id from Order o order by " + sort.getOrderBy(), Long.class)
+                    .setFirstResult(offset)
+                    .setMaxResults(limit)
+                    .getResultList();
+            return findAllByIds(graph, ids);
+        }
+        return graph.apply(em, em.createQuery("select o from Order o order by " + sort.getOrderBy(), Order.class))
                 .setFirstResult(offset)
                 .setMaxResults(limit)
                 .getResultList();
     }
-}
 
+    /**
+     * fetch plan을 지정해서 키셋(seek) 페이징
+     * - offset 만큼 읽고 버리지 않고 order_id(PK 인덱스)로 바로 다음 위치를 찾아간다.
+     * - N 번째 페이지도 첫 페이지와 비용이 같다.
+     * - 컬렉션을 포함한 fetch plan은 2단계로 조회 (findAllByIds)
+     */
+    public List<Order> findAll(OrderGraph graph, OrderCursor cursor, int limit) {
+        String select = graph.hasCollection() ? "select o.id from Order o" : "select o from Order o";
+        if (!cursor.isFirst()) {
+            select += " where o.id > :lastOrderId";
+        }
+        select += " order by o.id";
+
+        if (graph.hasCollection()) {
+            TypedQuery<Long> query = em.createQuery(select, Long.class)
+                    .setMaxResults(limit);
+            if (!cursor.isFirst()) {
+                query.setParameter("lastOrderId", cursor.getLastOrderId());
+            }
+            return findAllByIds(graph, query.getResultList());
+        }
+
+        TypedQuery<Order> query = graph.apply(em, em.createQuery(select, Order.class))
+                .setMaxResults(limit);
+        if (!cursor.isFirst()) {
+            query.setParameter("lastOrderId", cursor.getLastOrderId());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 2단계 페이징의 2단계: 1단계에서 페이징한 order_id만 fetch plan으로 조회
+     * - 컬렉션 fetch join을 해도 DB에서 페이징하므로 전체를 메모리에 올리지 않는다.
+     * - IN 절은 순서를 보장하지 않으므로 ids 순서대로 다시 정렬
+     * - 1단계 조회 후 삭제된 주문은 빠진다.
+     */
+    public List<Order> findAllByIds(OrderGraph graph, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String jpql = graph.hasCollection()
+                ? "select distinct o from Order o where o.id in :ids"
+                : "select o from Order o where o.id in :ids";
+        List<Order> orders = graph.apply(em, em.createQuery(jpql, Order.class))
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Map<Long, Order> orderMap = orders.stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        return ids.stream()
+                .map(orderMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 페이징 total용 count
+     * - 목록 조회의 fetch join(member, delivery) 없이 주문 테이블만 센다.
+     */
+    public long count() {
+        return em.createQuery("select count(o) from Order o", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * 테이블 통계의 추정 행 수 (H2 INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE)
+     * - 테이블을 읽지 않으므로 데이터 크기와 상관없이 싸다.
+     * - DB 전용 쿼리, 다른 DB는 pg_class.reltuples(PostgreSQL), information_schema.TABLES.TABLE_ROWS(MySQL) 등으로 바꿔야 한다.
+     */
+    public long estimateCount() {
+        Number estimate = (Number) em.createNativeQuery(
+                "select row_count_estimate from information_schema.tables" +
+                        " where upper(table_name) = 'ORDERS'")
+                .getSingleResult();
+        return estimate.longValue();
+    }
+
+    /**
+     * JPQL과 파라미터
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static class SearchQuery {
+        private final String jpql;
+        private final Map<String, Object> parameters;
+    }
+}
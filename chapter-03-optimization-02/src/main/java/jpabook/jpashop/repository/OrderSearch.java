@@ -3,10 +3,21 @@ package jpabook.jpashop.repository;
 import jpabook.jpashop.domain.OrderStatus;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
 
 @Getter @Setter
 public class OrderSearch {
 
     private String memberName; //회원 이름
     private OrderStatus orderStatus; //주문 상태[ORDER, CANCEL]
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateFrom; //주문시간 >= from
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateTo;   //주문시간 < to
+    private Long memberId;               //회원 id
+    private Integer minTotal;            //주문 금액 >= min (order_summary)
+    private Integer maxTotal;            //주문 금액 <= max (order_summary)
 }
@@ -0,0 +1,63 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 주문 검색 키셋(seek) 페이징 커서
+ * - 주문 검색은 (order_date, order_id) 순이므로 마지막 주문의 주문시간과 주문번호를 함께 보관
+ * - 토큰이 없으면 첫 페이지
+ */
+@Getter
+public class OrderSearchCursor {
+
+    private static final OrderSearchCursor FIRST = new OrderSearchCursor(null, null);
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime lastOrderDate;
+    private final Long lastOrderId;
+
+    private OrderSearchCursor(LocalDateTime lastOrderDate, Long lastOrderId) {
+        this.lastOrderDate = lastOrderDate;
+        this.lastOrderId = lastOrderId;
+    }
+
+    public static OrderSearchCursor first() {
+        return FIRST;
+    }
+
+    public static OrderSearchCursor after(LocalDateTime lastOrderDate, Long lastOrderId) {
+        return new OrderSearchCursor(lastOrderDate, lastOrderId);
+    }
+
+    public boolean isFirst() {
+        return lastOrderId == null;
+    }
+
+    public String encode() {
+        if (isFirst()) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((lastOrderDate + SEPARATOR + lastOrderId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderSearchCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return first();
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            return after(LocalDateTime.parse(decoded.substring(0, separator)), Long.valueOf(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new InvalidRequestParameterException("잘못된 커서입니다: " + token, e);
+        }
+    }
+}
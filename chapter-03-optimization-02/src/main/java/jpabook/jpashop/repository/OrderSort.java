@@ -0,0 +1,40 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+
+import java.util.Locale;
+
+/**
+ * 주문 목록 정렬
+ * - 같은 값이 있어도 페이지 경계가 흔들리지 않도록 마지막은 항상 order_id
+ */
+public enum OrderSort {
+
+    ID("o.id asc"),
+    ID_DESC("o.id desc"),
+    ORDER_DATE_DESC("o.orderDate desc, o.id desc");
+
+    private final String orderBy;
+
+    OrderSort(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * sort 파라미터가 없으면 ID
+     */
+    public static OrderSort parse(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return ID;
+        }
+        try {
+            return valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestParameterException("sort는 id, id_desc, order_date_desc 중 하나여야 합니다: " + sort, e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderSummary orderSummary) {
+        em.persist(orderSummary);
+    }
+
+    public OrderSummary findOne(Long orderId) {
+        return em.find(OrderSummary.class, orderId);
+    }
+
+    /**
+     * 주문 id로 IN 조회 (없는 주문 요약은 빠진다.)
+     */
+    public List<OrderSummary> findAll(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select s from OrderSummary s where s.id in :orderIds", OrderSummary.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 키셋 페이징, 조인 없이 order_summary PK 인덱스만 사용
+     */
+    public List<OrderSummary> findAll(OrderCursor cursor, int limit) {
+        String jpql = "select s from OrderSummary s";
+        if (!cursor.isFirst()) {
+            jpql += " where s.id > :lastOrderId";
+        }
+        jpql += " order by s.id";
+
+        TypedQuery<OrderSummary> query = em.createQuery(jpql, OrderSummary.class)
+                .setMaxResults(limit);
+        if (!cursor.isFirst()) {
+            query.setParameter("lastOrderId", cursor.getLastOrderId());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 회원의 주문 요약 회원 이름 변경 (bulk update, 영속성 컨텍스트를 거치지 않는다.)
+     * @return 변경한 주문 요약 수
+     */
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :memberName" +
+                " where s.id in (select o.id from Order o where o.member.id = :memberId)")
+                .setParameter("memberName", memberName)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+}
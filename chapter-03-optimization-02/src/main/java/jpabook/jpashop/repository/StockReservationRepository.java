@@ -0,0 +1,57 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+
+    private final EntityManager em;
+
+    public void save(StockReservation reservation) {
+        em.persist(reservation);
+    }
+
+    /**
+     * select ... for update (확정/해제/만료가 같은 예약을 동시에 처리하지 않게)
+     */
+    public StockReservation findOneForUpdate(Long id) {
+        return em.find(StockReservation.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 예약 id 순으로 락 (동시에 도는 만료 묶음끼리 같은 순서로 잡아서 교착 상태가 생기지 않게)
+     */
+    public List<StockReservation> findAllForUpdate(List<Long> ids) {
+        return em.createQuery("select r from StockReservation r where r.id in :ids order by r.id", StockReservation.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 타이밍 휠 복구용 키셋 조회 [stock_reservation_id, expiresAt]
+     */
+    public List<Object[]> findAllExpiries(Long lastId, int limit) {
+        return em.createQuery("select r.id, r.expiresAt from StockReservation r where r.id > :lastId order by r.id", Object[].class)
+                .setParameter("lastId", lastId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public void deleteAll(List<Long> ids) {
+        em.createQuery("delete from StockReservation r where r.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    public void delete(StockReservation reservation) {
+        em.remove(reservation);
+    }
+}
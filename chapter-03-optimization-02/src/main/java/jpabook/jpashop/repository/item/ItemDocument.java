@@ -0,0 +1,53 @@
+package jpabook.jpashop.repository.item;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 검색 인덱스에 보관하는 상품 스냅샷
+ * - 검색 결과를 DB 조회 없이 바로 응답하기 위해 필요한 값만 복사
+ * - 재고는 주문마다 바뀌므로 보관하지 않는다.
+ */
+@Getter
+public class ItemDocument {
+
+    private final Long itemId;
+    private final String type; //BOOK, ALBUM, MOVIE
+    private final String name;
+    private final int price;
+    private final Map<String, String> fields; //검색 필드 -> 값 (name 포함)
+
+    public ItemDocument(Long itemId, String type, String name, int price, Map<String, String> fields) {
+        this.itemId = itemId;
+        this.type = type;
+        this.name = name;
+        this.price = price;
+        this.fields = fields;
+    }
+
+    public static ItemDocument of(Item item) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", item.getName());
+        String type = "ITEM";
+        if (item instanceof Book) {
+            type = "BOOK";
+            fields.put("author", ((Book) item).getAuthor());
+            fields.put("isbn", ((Book) item).getIsbn());
+        } else if (item instanceof Album) {
+            type = "ALBUM";
+            fields.put("artist", ((Album) item).getArtist());
+        } else if (item instanceof Movie) {
+            type = "MOVIE";
+            fields.put("director", ((Movie) item).getDirector());
+            fields.put("actor", ((Movie) item).getActor());
+        }
+        fields.values().removeIf(value -> value == null || value.isEmpty());
+        return new ItemDocument(item.getId(), type, item.getName(), item.getPrice(), fields);
+    }
+}
@@ -0,0 +1,280 @@
+package jpabook.jpashop.repository.item;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.event.ItemChangedEvent;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 상품 전문 검색용 역색인 (애플리케이션 메모리)
+ * - 상품명과 하위 타입 필드(Book.author/isbn, Album.artist, Movie.director/actor)를 단어(token)로 잘라서 token -> 상품 id 목록
+ * - 검색어의 모든 단어가 들어있는 상품만, 필드 가중치 합(score) 순으로 정렬 (이름 3, 저자/아티스트/감독/배우 2, isbn 1)
+ * - 마지막 단어는 접두어로도 찾는다. (입력 중 검색, 가중치 절반)
+ * - 검색 결과는 보관중인 스냅샷(ItemDocument)으로 응답 -> SQL 없음
+ * - 기동 후 백그라운드에서 DB로 재구성, 이후 상품 등록/수정 커밋(AFTER_COMMIT)마다 갱신
+ *   재구성이 실패하면 간격을 늘려가며(최대 1분) 성공할 때까지 다시 재구성 (그 동안 검색은 503)
+ */
+@Slf4j
+@Component
+public class ItemSearchIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final long REBUILD_RETRY_MILLIS = 1000;
+    private static final long REBUILD_RETRY_MAX_MILLIS = 60000;
+
+    private static final Map<String, Integer> FIELD_WEIGHTS = new HashMap<>();
+
+    static {
+        FIELD_WEIGHTS.put("name", 3);
+        FIELD_WEIGHTS.put("author", 2);
+        FIELD_WEIGHTS.put("artist", 2);
+        FIELD_WEIGHTS.put("director", 2);
+        FIELD_WEIGHTS.put("actor", 2);
+        FIELD_WEIGHTS.put("isbn", 1);
+    }
+
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, ItemDocument> documents = new ConcurrentHashMap<>();
+    //token -> (상품 id -> 가중치), 접두어 검색을 위해 정렬된 Map
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+
+    //재구성하는 동안 들어온 변경, 재구성이 끝나면 다시 적용 (DB에서 읽은 값보다 최신)
+    //상품마다 마지막 변경만 두므로 상품 수보다 커지지 않고, 재구성이 끝나거나 실패하면 비운다.
+    private Map<Long, ItemDocument> pending;
+
+    public ItemSearchIndex(ItemRepository itemRepository, PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 검색어의 모든 단어를 포함한 상품을 score 순으로 (score가 같으면 이름, id 순)
+     */
+    public List<ItemDocument> search(String query) {
+        List<String> tokens = new ArrayList<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Double> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean last = i == tokens.size() - 1;
+            Map<Long, Double> matches = match(tokens.get(i), last);
+            scores = scores == null ? matches : intersect(scores, matches);
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<ItemDocument> result = new ArrayList<>(scores.size());
+        for (Long itemId : scores.keySet()) {
+            ItemDocument document = documents.get(itemId);
+            if (document != null) {
+                result.add(document);
+            }
+        }
+        Map<Long, Double> finalScores = scores;
+        result.sort(Comparator.<ItemDocument>comparingDouble(d -> -finalScores.get(d.getItemId()))
+                .thenComparing(ItemDocument::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(ItemDocument::getItemId));
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuildUntilReady, "item-search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //실패하면 1초, 2초, 4초 ... 최대 1분 간격으로 다시 재구성
+    private void rebuildUntilReady() {
+        long delay = REBUILD_RETRY_MILLIS;
+        while (true) {
+            try {
+                rebuild();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("item search index rebuild failed, retry in {} ms", delay, e);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, REBUILD_RETRY_MAX_MILLIS);
+        }
+    }
+
+    /**
+     * DB에서 인덱스 재구성 (item_id 순으로 나눠서 조회)
+     * - 실패하면 모아둔 변경을 버린다. (변경은 이미 인덱스에 반영했고, 다음 재구성은 DB를 처음부터 다시 읽는다.)
+     */
+    public void rebuild() {
+        synchronized (this) {
+            pending = new HashMap<>();
+        }
+        try {
+            doRebuild();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+    }
+
+    private void doRebuild() {
+        long count = 0;
+        Long lastItemId = 0L;
+        while (true) {
+            Long after = lastItemId;
+            List<ItemDocument> batch = transactionTemplate.execute(status -> {
+                List<ItemDocument> documents = new ArrayList<>();
+                for (Item item : itemRepository.findAll(after, REBUILD_BATCH_SIZE)) {
+                    documents.add(ItemDocument.of(item));
+                }
+                return documents;
+            });
+            synchronized (this) {
+                batch.forEach(this::put);
+            }
+            count += batch.size();
+            if (batch.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastItemId = batch.get(batch.size() - 1).getItemId();
+        }
+
+        synchronized (this) {
+            pending.values().forEach(this::put);
+            pending = null;
+            ready = true;
+        }
+        log.info("item search index rebuilt: {} items, {} tokens", count, postings.size());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onItemChanged(ItemChangedEvent event) {
+        if (event.getItem() == null) {
+            return;
+        }
+        ItemDocument document = ItemDocument.of(event.getItem());
+        if (pending != null) {
+            pending.put(document.getItemId(), document);
+        }
+        put(document);
+    }
+
+    private void put(ItemDocument document) {
+        ItemDocument old = documents.put(document.getItemId(), document);
+        if (old != null) {
+            tokensOf(old).keySet().forEach(token -> postings.computeIfPresent(token, (t, ids) -> {
+                ids.remove(old.getItemId());
+                return ids.isEmpty() ? null : ids;
+            }));
+        }
+        tokensOf(document).forEach((token, weight) ->
+                postings.computeIfAbsent(token, t -> new ConcurrentHashMap<>()).put(document.getItemId(), weight));
+    }
+
+    private Map<Long, Double> match(String token, boolean prefix) {
+        Map<Long, Double> matches = new HashMap<>();
+        if (prefix) {
+            NavigableMap<String, Map<Long, Integer>> prefixed = postings.subMap(token, true, token + Character.MAX_VALUE, true);
+            prefixed.forEach((t, ids) -> ids.forEach((id, weight) ->
+                    matches.merge(id, t.equals(token) ? weight : weight * PREFIX_WEIGHT, Math::max)));
+        } else {
+            Map<Long, Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.forEach((id, weight) -> matches.put(id, (double) weight));
+            }
+        }
+        return matches;
+    }
+
+    private static Map<Long, Double> intersect(Map<Long, Double> scores, Map<Long, Double> matches) {
+        Map<Long, Double> smaller = scores.size() <= matches.size() ? scores : matches;
+        Map<Long, Double> larger = smaller == scores ? matches : scores;
+        Map<Long, Double> result = new HashMap<>();
+        smaller.forEach((id, score) -> {
+            Double other = larger.get(id);
+            if (other != null) {
+                result.put(id, score + other);
+            }
+        });
+        return result;
+    }
+
+    //token -> 문서 안에서 가장 큰 필드 가중치
+    static Map<String, Integer> tokensOf(ItemDocument document) {
+        Map<String, Integer> tokens = new HashMap<>();
+        document.getFields().forEach((field, value) -> {
+            int weight = FIELD_WEIGHTS.getOrDefault(field, 1);
+            Set<String> fieldTokens = "isbn".equals(field)
+                    ? Collections.singleton(normalizeIsbn(value))
+                    : tokenize(value);
+            fieldTokens.forEach(token -> tokens.merge(token, weight, Math::max));
+        });
+        tokens.remove("");
+        return tokens;
+    }
+
+    /**
+     * 소문자로 바꾸고 글자/숫자가 아닌 문자로 자른다. ("978-89-1234" 같은 isbn은 검색어에서도 붙여서 하나로)
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}-]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            //하이픈으로 이어진 숫자는 isbn으로 보고 붙인다.
+            if (token.matches("[\\p{N}-]+")) {
+                token = normalizeIsbn(token);
+            }
+            for (String part : token.split("-")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalizeIsbn(String isbn) {
+        return isbn.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+    }
+}
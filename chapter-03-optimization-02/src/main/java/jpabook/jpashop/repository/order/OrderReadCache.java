@@ -0,0 +1,202 @@
+package jpabook.jpashop.repository.order;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jpabook.jpashop.event.ItemChangedEvent;
+import jpabook.jpashop.event.MemberChangedEvent;
+import jpabook.jpashop.event.OrderChangedEvent;
+import jpabook.jpashop.repository.OrderCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 주문 조회 DTO 캐시 (애플리케이션 메모리)
+ * - 조회 결과 row 수(weight)로 크기 제한, 오래된 항목부터 제거
+ * - 주문/회원/상품 변경이 커밋된 후(AFTER_COMMIT) 제거
+ *   주문 취소: 그 주문을 포함한 항목만
+ *   주문 생성: 새 주문이 들어갈 수 있는 범위(전체 목록, 마지막 페이지 등)의 항목만
+ *   회원/상품 변경: 그 회원/상품을 참조하는 항목만 (항목마다 조회 결과의 회원/상품 id를 기록, OrderReferences)
+ *   id를 모르는 결과가 섞인 항목은 회원/상품 변경마다 제거
+ * - 메트릭: cache.gets(hit/miss), cache.evictions 등 (cache=orderRead)
+ */
+@Component
+public class OrderReadCache {
+
+    private final boolean enabled;
+    private final Cache<String, Entry> cache;
+
+    //캐시 제거 세대, 조회하는 동안 제거가 일어났으면 조회 결과를 캐시하지 않는다.
+    private long generation;
+
+    public OrderReadCache(MeterRegistry meterRegistry,
+                          @Value("${jpashop.order.read-cache.enabled:true}") boolean enabled,
+                          @Value("${jpashop.order.read-cache.max-rows:100000}") long maxRows,
+                          @Value("${jpashop.order.read-cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((String key, Entry entry) -> entry.rows)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds)) //애플리케이션 밖에서 바뀐 데이터 대비
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orderRead");
+    }
+
+    /**
+     * 전체 목록 조회 - 어떤 주문이 생성돼도 제거
+     */
+    public <T extends OrderReferences> List<T> getAll(String query, ToIntFunction<T> rowsOf, Supplier<List<T>> loader) {
+        return get(query, rowsOf, loader, result -> Range.ALL);
+    }
+
+    /**
+     * 키셋 페이지 조회 - (cursor, 페이지 마지막 주문] 범위에 주문이 생성되면 제거
+     * - 마지막 페이지(가득 차지 않은 페이지)는 뒤에 생성되는 주문도 포함
+     */
+    public <T extends OrderReferences> List<T> getPage(String query, OrderCursor cursor, int limit,
+                                                       ToIntFunction<T> rowsOf, Supplier<List<T>> loader) {
+        String key = query + ":cursor=" + cursor.getLastOrderId() + ":limit=" + limit;
+        Long from = cursor.isFirst() ? null : cursor.getLastOrderId();
+        return get(key, rowsOf, loader, result -> new Range(from, lastOrderId(result, limit)));
+    }
+
+    /**
+     * offset 페이지 조회 - 페이지 마지막 주문 이전에 주문이 생성되면 뒤로 밀리므로 제거
+     */
+    public <T extends OrderReferences> List<T> getPage(String query, int offset, int limit,
+                                                       ToIntFunction<T> rowsOf, Supplier<List<T>> loader) {
+        String key = query + ":offset=" + offset + ":limit=" + limit;
+        return get(key, rowsOf, loader, result -> new Range(null, lastOrderId(result, limit)));
+    }
+
+    @TransactionalEventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        Long orderId = event.getOrderId();
+        if (event.getType() == OrderChangedEvent.Type.CREATED) {
+            invalidate(entry -> entry.newOrderRange.contains(orderId));
+        } else {
+            invalidate(entry -> entry.orderIds.contains(orderId));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        Long memberId = event.getMemberId();
+        invalidate(entry -> entry.memberIds == null || entry.memberIds.contains(memberId));
+    }
+
+    @TransactionalEventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        Long itemId = event.getItemId();
+        invalidate(entry -> entry.itemIds == null || entry.itemIds.contains(itemId));
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.invalidateAll();
+    }
+
+    private <T extends OrderReferences> List<T> get(String key, ToIntFunction<T> rowsOf, Supplier<List<T>> loader,
+                                                    Function<List<T>, Range> newOrderRangeOf) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            @SuppressWarnings("unchecked")
+            List<T> cached = (List<T>) entry.value;
+            return cached;
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        List<T> result = Collections.unmodifiableList(loader.get());
+
+        Set<Long> orderIds = new HashSet<>();
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        int rows = 1;
+        for (T dto : result) {
+            orderIds.add(dto.getOrderId());
+            memberIds.add(dto.getMemberId());
+            itemIds.addAll(dto.getItemIds());
+            rows += rowsOf.applyAsInt(dto);
+        }
+        //모르는 id(null)가 있으면 모든 회원/상품 변경에 제거
+        Entry loaded = new Entry(result, orderIds, memberIds.contains(null) ? null : memberIds,
+                itemIds.contains(null) ? null : itemIds, newOrderRangeOf.apply(result), rows);
+
+        synchronized (this) {
+            //조회 중에 커밋된 변경이 있으면 조회 결과가 이미 오래된 것일 수 있다.
+            if (generation == loadGeneration) {
+                cache.put(key, loaded);
+            }
+        }
+        return result;
+    }
+
+    private synchronized void invalidate(Predicate<Entry> affected) {
+        generation++;
+        cache.asMap().values().removeIf(affected);
+    }
+
+    //가득 찬 페이지면 마지막 주문까지, 아니면 끝이 열린 범위(null)
+    private static Long lastOrderId(List<? extends OrderReferences> result, int limit) {
+        return result.size() == limit ? result.get(result.size() - 1).getOrderId() : null;
+    }
+
+    private static class Entry {
+
+        final Object value;
+        final Set<Long> orderIds;
+        final Set<Long> memberIds; //null이면 모름
+        final Set<Long> itemIds;   //null이면 모름
+        final Range newOrderRange;
+        final int rows;
+
+        Entry(Object value, Set<Long> orderIds, Set<Long> memberIds, Set<Long> itemIds, Range newOrderRange, int rows) {
+            this.value = value;
+            this.orderIds = orderIds;
+            this.memberIds = memberIds;
+            this.itemIds = itemIds;
+            this.newOrderRange = newOrderRange;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * (from, to] order_id 범위, null이면 끝이 열린 범위
+     */
+    private static class Range {
+
+        static final Range ALL = new Range(null, null);
+
+        final Long from;
+        final Long to;
+
+        Range(Long from, Long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean contains(Long orderId) {
+            return (from == null || orderId > from) && (to == null || orderId <= to);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.order;
+
+import java.util.Collection;
+
+/**
+ * 주문 조회 결과 1건이 참조하는 주문/회원/상품 id (OrderReadCache 부분 제거용)
+ * - 모르는 id는 null, 그 결과를 담은 캐시 항목은 회원/상품 변경마다 제거된다.
+ */
+public interface OrderReferences {
+
+    Long getOrderId();
+
+    Long getMemberId();
+
+    /**
+     * 주문상품의 상품 id, 주문상품을 조회하지 않았으면 빈 목록
+     */
+    Collection<Long> getItemIds();
+}
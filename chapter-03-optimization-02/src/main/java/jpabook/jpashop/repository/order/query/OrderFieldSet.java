@@ -0,0 +1,98 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 주문 조회 API의 fields 파라미터(sparse fieldset)
+ * - 예) fields=orderId,orderDate,orderItems.itemName
+ * - orderItems 만 적으면 orderItems의 모든 필드
+ * - 요청한 필드만 select 하고, 필요 없는 조인은 하지 않는다.
+ */
+public class OrderFieldSet {
+
+    //응답 필드 -> JPQL 경로
+    static final Map<String, String> ORDER_FIELDS = new LinkedHashMap<>();
+    static final Map<String, String> ORDER_ITEM_FIELDS = new LinkedHashMap<>();
+
+    static {
+        ORDER_FIELDS.put("orderId", "o.id");
+        ORDER_FIELDS.put("name", "m.name");
+        ORDER_FIELDS.put("orderDate", "o.orderDate");
+        ORDER_FIELDS.put("orderStatus", "o.status");
+        ORDER_FIELDS.put("address", "d.address");
+
+        ORDER_ITEM_FIELDS.put("itemName", "i.name");
+        ORDER_ITEM_FIELDS.put("orderPrice", "oi.orderPrice");
+        ORDER_ITEM_FIELDS.put("count", "oi.count");
+    }
+
+    private static final String ORDER_ITEMS = "orderItems";
+
+    private final Set<String> orderFields = new LinkedHashSet<>();
+    private final Set<String> orderItemFields = new LinkedHashSet<>();
+
+    private OrderFieldSet() {
+    }
+
+    public static OrderFieldSet parse(String fields) {
+        if (!StringUtils.hasText(fields)) {
+            throw new InvalidRequestParameterException("fields가 비어 있습니다.");
+        }
+
+        OrderFieldSet fieldSet = new OrderFieldSet();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.equals(ORDER_ITEMS)) {
+                fieldSet.orderItemFields.addAll(ORDER_ITEM_FIELDS.keySet());
+            } else if (field.startsWith(ORDER_ITEMS + ".") && ORDER_ITEM_FIELDS.containsKey(field.substring(ORDER_ITEMS.length() + 1))) {
+                fieldSet.orderItemFields.add(field.substring(ORDER_ITEMS.length() + 1));
+            } else if (ORDER_FIELDS.containsKey(field)) {
+                fieldSet.orderFields.add(field);
+            } else {
+                throw new InvalidRequestParameterException("지원하지 않는 필드입니다: " + field
+                        + " (사용 가능: " + ORDER_FIELDS.keySet() + ", " + ORDER_ITEMS + "." + ORDER_ITEM_FIELDS.keySet() + ")");
+            }
+        }
+        return fieldSet;
+    }
+
+    public Set<String> getOrderFields() {
+        return Collections.unmodifiableSet(orderFields);
+    }
+
+    public Set<String> getOrderItemFields() {
+        return Collections.unmodifiableSet(orderItemFields);
+    }
+
+    public boolean hasOrderItems() {
+        return !orderItemFields.isEmpty();
+    }
+
+    /**
+     * 회원 조인 필요 여부
+     */
+    public boolean needsMember() {
+        return orderFields.contains("name");
+    }
+
+    /**
+     * 배송 조인 필요 여부
+     */
+    public boolean needsDelivery() {
+        return orderFields.contains("address");
+    }
+
+    /**
+     * 상품 조인 필요 여부
+     */
+    public boolean needsItem() {
+        return orderItemFields.contains("itemName");
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 플랫 데이터(OrderFlatDto) -> OrderQueryDto 변환
+ * - 같은 주문의 row가 연속으로 들어온다는 전제(order by o.id)로 한 번만 훑으면서 조립한다.
+ * - 중간 Map 없이 입력 순서를 그대로 유지한다.
+ * - 주문이 완성될 때마다 consumer에 넘기므로 스트리밍 조회에도 그대로 사용
+ */
+public class OrderFlatAssembler {
+
+    private final Consumer<OrderQueryDto> consumer;
+    private OrderQueryDto current; //조립 중인 주문
+
+    public OrderFlatAssembler(Consumer<OrderQueryDto> consumer) {
+        this.consumer = consumer;
+    }
+
+    public static List<OrderQueryDto> assemble(List<OrderFlatDto> flats) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatAssembler assembler = new OrderFlatAssembler(result::add);
+        for (OrderFlatDto flat : flats) {
+            assembler.add(flat);
+        }
+        assembler.finish();
+        return result;
+    }
+
+    public void add(OrderFlatDto flat) {
+        if (current == null || !current.getOrderId().equals(flat.getOrderId())) {
+            finish();
+            current = new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(), flat.getOrderStatus(), flat.getAddress(), new ArrayList<>());
+        }
+        current.getOrderItems().add(new OrderItemQueryDto(flat.getOrderId(), flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+    }
+
+    /**
+     * 조립 중인 마지막 주문을 넘긴다.
+     */
+    public void finish() {
+        if (current != null) {
+            consumer.accept(current);
+            current = null;
+        }
+    }
+}
@@ -8,6 +8,8 @@ public class OrderItemQueryDto {
 
     @JsonIgnore
     private Long orderId; //주문번호
+    @JsonIgnore
+    private Long itemId; //캐시 제거용 (OrderReadCache)
     private String itemName;//상품 명
     private int orderPrice; //주문 가격
     private int count;      //주문 수량
@@ -18,4 +20,9 @@ public class OrderItemQueryDto {
         this.orderPrice = orderPrice;
         this.count = count;
     }
+
+    public OrderItemQueryDto(Long orderId, Long itemId, String itemName, int orderPrice, int count) {
+        this(orderId, itemName, orderPrice, count);
+        this.itemId = itemId;
+    }
 }
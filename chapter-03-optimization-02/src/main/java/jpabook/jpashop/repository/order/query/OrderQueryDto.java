@@ -1,18 +1,25 @@
 package jpabook.jpashop.repository.order.query;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.OrderReferences;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Data
 @EqualsAndHashCode(of = "orderId")
-public class OrderQueryDto {
+public class OrderQueryDto implements OrderReferences {
 
     private Long orderId;
+    @JsonIgnore
+    private Long memberId; //캐시 제거용 (OrderReadCache)
     private String name;
     private LocalDateTime orderDate; //주문시간
     private OrderStatus orderStatus;
@@ -27,6 +34,11 @@ public class OrderQueryDto {
         this.address = address;
     }
 
+    public OrderQueryDto(Long orderId, Long memberId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address) {
+        this(orderId, name, orderDate, orderStatus, address);
+        this.memberId = memberId;
+    }
+
     public OrderQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address, List<OrderItemQueryDto> orderItems) {
         this.orderId = orderId;
         this.name = name;
@@ -35,4 +47,17 @@ public class OrderQueryDto {
         this.address = address;
         this.orderItems = orderItems;
     }
+
+    @JsonIgnore
+    @Override
+    public Collection<Long> getItemIds() {
+        if (orderItems == null) {
+            return Collections.emptyList();
+        }
+        List<Long> itemIds = new ArrayList<>(orderItems.size());
+        for (OrderItemQueryDto orderItem : orderItems) {
+            itemIds.add(orderItem.getItemId());
+        }
+        return itemIds;
+    }
 }
\ No newline at end of file
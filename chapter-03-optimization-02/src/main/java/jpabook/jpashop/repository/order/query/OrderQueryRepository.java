@@ -1,61 +1,72 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.BatchLoader;
+import jpabook.jpashop.repository.BatchLoaders;
+import jpabook.jpashop.repository.InClauseQueryExecutor;
+import jpabook.jpashop.repository.OrderCursor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final InClauseQueryExecutor inClauseQueryExecutor;
+    private final BatchLoaders batchLoaders;
 
     /**
      * 컬렉션은 별도로 조회
-     * Query: 루트 1번, 컬렉션 N 번
-     * 단건 조회에서 많이 사용하는 방식
+     * Query: 루트 1번, 컬렉션 1번
+     * 주문마다 orderItems를 요청하지만 BatchLoader가 키를 모아서 IN 쿼리 1번으로 조회 (1 + N -> 1 + 1)
      */
     public List<OrderQueryDto> findOrderQueryDtos() {
         //루트 조회(toOne 코드를 모두 한번에 조회)
         List<OrderQueryDto> result = findOrders();
 
-        //루프를 돌면서 컬렉션 추가(추가 쿼리 실행)
-        result.forEach(o -> {
-            List<OrderItemQueryDto> orderItems = findOrderItems(o.getOrderId());
-            o.setOrderItems(orderItems);
-        });
+        //루프를 돌면서 컬렉션 요청(바로 조회하지 않고 키만 모음)
+        BatchLoader<Long, List<OrderItemQueryDto>> orderItemsLoader = orderItemsLoader();
+        result.forEach(o -> orderItemsLoader.load(o.getOrderId()).thenAccept(o::setOrderItems));
+
+        //모아둔 주문의 orderItems를 한 번에 조회
+        orderItemsLoader.dispatch();
         return result;
     }
 
+    /**
+     * 주문별 orderItems loader (요청 단위로 memoize)
+     */
+    public BatchLoader<Long, List<OrderItemQueryDto>> orderItemsLoader() {
+        return batchLoaders.get("orderItemsByOrderId", this::findOrderItemMap, Collections.emptyList());
+    }
+
     /**
      * 1:N 관계(컬렉션)를 제외한 나머지를 한번에 조회
      */
     private List<OrderQueryDto> findOrders() {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.id, m.name, o.orderDate, o.status, d.address)" +
                         " from Order o" +
                         " join o.member m" +
                         " join o.delivery d", OrderQueryDto.class)
                 .getResultList();
     }
 
-    /**
-     * 1:N 관계인 orderItems 조회
-     */
-    private List<OrderItemQueryDto> findOrderItems(Long orderId) {
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id = : orderId", OrderItemQueryDto.class)
-                .setParameter("orderId", orderId)
-                .getResultList();
-    }
-
     /**
      * 최적화
      * Query: 루트 1번, 컬렉션 1번
@@ -76,25 +87,173 @@ public class OrderQueryRepository {
         return result;
     }
 
+    /**
+     * 페이징 최적화 (offset)
+     * Query: 루트 1번(페이징), 컬렉션 1번(해당 페이지의 주문만)
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(int offset, int limit) {
+        List<OrderQueryDto> result = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " order by o.id", OrderQueryDto.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        return withOrderItems(result);
+    }
+
+    /**
+     * 페이징 최적화 (키셋)
+     * - 마지막으로 조회한 order_id 다음부터 조회 -> 뒤쪽 페이지도 첫 페이지와 비용이 같음
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(OrderCursor cursor, int limit) {
+        String jpql = "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.id, m.name, o.orderDate, o.status, d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d";
+        if (!cursor.isFirst()) {
+            jpql += " where o.id > :lastOrderId";
+        }
+        jpql += " order by o.id";
+
+        TypedQuery<OrderQueryDto> query = em.createQuery(jpql, OrderQueryDto.class)
+                .setMaxResults(limit);
+        if (!cursor.isFirst()) {
+            query.setParameter("lastOrderId", cursor.getLastOrderId());
+        }
+        return withOrderItems(query.getResultList());
+    }
+
+    /**
+     * 요청한 필드만 조회 (sparse fieldset, 키셋 페이징)
+     * - 요청한 컬럼만 select, 요청하지 않은 member/delivery는 조인하지 않는다.
+     * - orderItems 필드를 요청하지 않으면 OrderItem/Item은 조회하지 않는다.
+     * Query: 루트 1번, 컬렉션 1번(요청시)
+     * @return 주문번호 -> 요청한 필드, 주문번호 순서
+     */
+    public Map<Long, Map<String, Object>> findAllByFields(OrderFieldSet fields, OrderCursor cursor, int limit) {
+        //페이징과 orderItems 조립에 필요하므로 o.id는 항상 조회
+        StringBuilder jpql = new StringBuilder("select o.id");
+        for (String field : fields.getOrderFields()) {
+            jpql.append(", ").append(OrderFieldSet.ORDER_FIELDS.get(field));
+        }
+        jpql.append(" from Order o");
+        if (fields.needsMember()) {
+            jpql.append(" join o.member m");
+        }
+        if (fields.needsDelivery()) {
+            jpql.append(" join o.delivery d");
+        }
+        if (!cursor.isFirst()) {
+            jpql.append(" where o.id > :lastOrderId");
+        }
+        jpql.append(" order by o.id");
+
+        TypedQuery<Tuple> query = em.createQuery(jpql.toString(), Tuple.class)
+                .setMaxResults(limit);
+        if (!cursor.isFirst()) {
+            query.setParameter("lastOrderId", cursor.getLastOrderId());
+        }
+
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> order = new LinkedHashMap<>();
+            int index = 1;
+            for (String field : fields.getOrderFields()) {
+                order.put(field, tuple.get(index++));
+            }
+            result.put((Long) tuple.get(0), order);
+        }
+
+        if (fields.hasOrderItems()) {
+            Map<Long, List<Map<String, Object>>> orderItemMap = new HashMap<>();
+            for (Tuple tuple : findOrderItemFields(fields, new ArrayList<>(result.keySet()))) {
+                Map<String, Object> orderItem = new LinkedHashMap<>();
+                int index = 1;
+                for (String field : fields.getOrderItemFields()) {
+                    orderItem.put(field, tuple.get(index++));
+                }
+                orderItemMap.computeIfAbsent((Long) tuple.get(0), id -> new ArrayList<>()).add(orderItem);
+            }
+            result.forEach((orderId, order) -> order.put("orderItems", orderItemMap.getOrDefault(orderId, Collections.emptyList())));
+        }
+        return result;
+    }
+
+    private List<Tuple> findOrderItemFields(OrderFieldSet fields, List<Long> orderIds) {
+        StringBuilder jpql = new StringBuilder("select oi.order.id");
+        for (String field : fields.getOrderItemFields()) {
+            jpql.append(", ").append(OrderFieldSet.ORDER_ITEM_FIELDS.get(field));
+        }
+        jpql.append(" from OrderItem oi");
+        if (fields.needsItem()) {
+            jpql.append(" join oi.item i");
+        }
+        jpql.append(" where oi.order.id in :orderIds");
+
+        return inClauseQueryExecutor.query(em, orderIds, (chunkEm, chunk) -> chunkEm.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("orderIds", chunk)
+                .getResultList());
+    }
+
+    /**
+     * 조회한 주문들의 orderItem 컬렉션을 한번에 조회해서 채운다.
+     */
+    private List<OrderQueryDto> withOrderItems(List<OrderQueryDto> result) {
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        result.forEach(o -> o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), Collections.emptyList())));
+        return result;
+    }
+
+    /**
+     * 조회 전략 선택용 통계, 테이블 통계의 추정 행 수 (H2 INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE)
+     * - count(*)와 달리 테이블을 읽지 않는다. (OrderRepository.estimateCount와 같은 DB 전용 쿼리)
+     */
+    public long estimateOrderCount() {
+        return estimateRowCount("ORDERS");
+    }
+
+    public long estimateOrderItemCount() {
+        return estimateRowCount("ORDER_ITEM");
+    }
+
+    private long estimateRowCount(String table) {
+        Number estimate = (Number) em.createNativeQuery(
+                "select row_count_estimate from information_schema.tables where upper(table_name) = :table")
+                .setParameter("table", table)
+                .getSingleResult();
+        return estimate.longValue();
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         return result.stream()
                 .map(o -> o.getOrderId())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * orderIds를 chunk 단위(2의 거듭제곱 크기로 패딩)로 나눠서 IN 절 조회 후 합친다.
+     */
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+        List<OrderItemQueryDto> orderItems = inClauseQueryExecutor.query(em, orderIds, (chunkEm, chunk) -> chunkEm.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.id, i.name, oi.orderPrice, oi.count)" +
                         " from OrderItem oi" +
                         " join oi.item i" +
                         " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
+                .setParameter("orderIds", chunk)
+                .getResultList());
 
         return orderItems.stream()
                 .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
     }
 
+    /**
+     * 플랫 데이터 조회
+     * - OrderFlatAssembler로 조립할 수 있도록 같은 주문의 row가 연속되게 order_id 순으로 정렬
+     */
     public List<OrderFlatDto> findAllByDto_flat() {
         return em.createQuery(
                 "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
@@ -102,7 +261,33 @@ public class OrderQueryRepository {
                         " join o.member m" +
                         " join o.delivery d" +
                         " join o.orderItems oi" +
-                        " join oi.item i", OrderFlatDto.class)
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * 플랫 데이터 스트리밍 조회
+     * - order_id 순으로 정렬된 조인 결과를 forward-only 커서로 fetchSize 만큼씩 읽는다.
+     * - order_id가 바뀌면 완성된 주문을 바로 consumer에 넘기고 참조를 버린다. -> 결과 크기와 상관없이 힙 사용량 일정
+     * - 커서는 트랜잭션 안에서만 유효하므로 읽기 전용 트랜잭션으로 감싼다.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(int fetchSize, Consumer<OrderQueryDto> consumer) {
+        try (Stream<OrderFlatDto> flats = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+
+            OrderFlatAssembler assembler = new OrderFlatAssembler(consumer);
+            flats.forEachOrdered(assembler::add);
+            assembler.finish();
+        }
+    }
 }
\ No newline at end of file
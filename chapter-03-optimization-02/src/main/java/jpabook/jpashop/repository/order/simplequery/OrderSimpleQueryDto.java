@@ -1,25 +1,39 @@
 package jpabook.jpashop.repository.order.simplequery;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.OrderReferences;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 
 @Data
-public class OrderSimpleQueryDto {
+public class OrderSimpleQueryDto implements OrderReferences {
 
     private Long orderId;
+    @JsonIgnore
+    private Long memberId; //캐시 제거용 (OrderReadCache)
     private String name;
     private LocalDateTime orderDate; //주문시간
     private OrderStatus orderStatus;
     private Address address;
 
-    public OrderSimpleQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address) {
+    public OrderSimpleQueryDto(Long orderId, Long memberId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address) {
         this.orderId = orderId;
+        this.memberId = memberId;
         this.name = name;
         this.orderDate = orderDate;
         this.orderStatus = orderStatus;
         this.address = address;
     }
+
+    //주문상품은 조회하지 않는다.
+    @JsonIgnore
+    @Override
+    public Collection<Long> getItemIds() {
+        return Collections.emptyList();
+    }
 }
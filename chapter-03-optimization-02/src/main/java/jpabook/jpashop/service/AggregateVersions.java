@@ -0,0 +1,65 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.event.ItemChangedEvent;
+import jpabook.jpashop.event.MemberChangedEvent;
+import jpabook.jpashop.event.OrderChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 애그리거트별 쓰기 버전
+ * - 회원/주문/상품 변경이 커밋될 때마다(AFTER_COMMIT) 1씩 증가, 줄어들지 않는다.
+ * - 목록 API의 ETag로 사용해서 변경이 없으면 DB 조회, JSON 직렬화 없이 304 응답
+ * - 재시작하면 버전이 0부터 다시 시작하므로 ETag에 기동 시각(epoch)을 함께 넣는다.
+ */
+@Component
+public class AggregateVersions {
+
+    public enum Aggregate {
+        MEMBER, ORDER, ITEM
+    }
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<Aggregate, AtomicLong> versions = new EnumMap<>(Aggregate.class);
+
+    public AggregateVersions() {
+        for (Aggregate aggregate : Aggregate.values()) {
+            versions.put(aggregate, new AtomicLong());
+        }
+    }
+
+    public long get(Aggregate aggregate) {
+        return versions.get(aggregate).get();
+    }
+
+    /**
+     * 조회 결과에 포함된 애그리거트들의 버전으로 만든 strong ETag
+     * - 조회 전에 만들어야 한다. (조회 중 커밋된 변경은 다음 요청에서 새 ETag로 감지)
+     */
+    public String etag(Aggregate... aggregates) {
+        StringBuilder etag = new StringBuilder("\"").append(Long.toString(epoch, 36));
+        for (Aggregate aggregate : aggregates) {
+            etag.append('-').append(aggregate.name().charAt(0)).append(get(aggregate));
+        }
+        return etag.append('"').toString();
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        versions.get(Aggregate.MEMBER).incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        versions.get(Aggregate.ORDER).incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        versions.get(Aggregate.ITEM).incrementAndGet();
+    }
+}
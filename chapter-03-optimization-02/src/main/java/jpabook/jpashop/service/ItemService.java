@@ -1,12 +1,15 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.event.ItemChangedEvent;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional(readOnly = true)
@@ -14,18 +17,30 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
+    private final StockShardService stockShardService;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        eventPublisher.publishEvent(new ItemChangedEvent(item));
     }
 
     @Transactional
     public void updateItem(Long itemId, String name, int price, int stockQuantity) {
         Item item = itemRepository.findOne(itemId);
+        if (item.getStockShards() > 0) {
+            //재고 shard를 쓰는 상품은 shard를 모두 잡고 새 재고로 다시 나눈다.
+            stockShardService.replaceStock(item, stockQuantity);
+        } else {
+            //재고 장부를 쓰는 상품은 바뀐 만큼 주문 가능 수량도 조정
+            stockLedger.adjustAfterCommit(itemId, stockQuantity - item.getStockQuantity());
+            item.setStockQuantity(stockQuantity);
+        }
         item.setName(name);
         item.setPrice(price);
-        item.setStockQuantity(stockQuantity);
+        eventPublisher.publishEvent(new ItemChangedEvent(item));
     }
 
     public List<Item> findItems() {
@@ -36,4 +51,15 @@ public class ItemService {
         return itemRepository.findOne(itemId);
     }
 
+    /**
+     * 전체 재고 (shard를 쓰는 상품은 shard 수량 합계 포함)
+     */
+    public int getTotalStock(Item item) {
+        return stockShardService.getTotalStock(item);
+    }
+
+    public Map<Long, Integer> getTotalStocks(List<Item> items) {
+        return stockShardService.getTotalStocks(items);
+    }
+
 }
@@ -0,0 +1,20 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 일괄 주문 한 줄 (회원, 상품, 수량 -> 주문 1건)
+ */
+@Getter
+public class OrderBatchLine {
+
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+
+    public OrderBatchLine(Long memberId, Long itemId, int count) {
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 일괄 주문 한 줄의 결과, 성공하면 orderId, 실패하면 error
+ */
+@Getter
+public class OrderBatchResult {
+
+    private final int index; //요청 줄 번호 (0부터)
+    private final Long orderId;
+    private final String error;
+
+    private OrderBatchResult(int index, Long orderId, String error) {
+        this.index = index;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public static OrderBatchResult success(int index, Long orderId) {
+        return new OrderBatchResult(index, orderId, null);
+    }
+
+    public static OrderBatchResult failure(int index, String error) {
+        return new OrderBatchResult(index, null, error);
+    }
+
+    public boolean isSuccess() {
+        return orderId != null;
+    }
+}
@@ -0,0 +1,187 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.StockLedgerSwitchedException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * 일괄 주문 (줄마다 주문 1건)
+ * - chunk-size 줄씩 트랜잭션 1번: 회원/상품을 IN 조회하고 주문을 모두 persist한 뒤 커밋할 때 flush 1번
+ *   insert/update는 hibernate.jdbc.batch_size 단위로 묶어서 실행 (order_inserts로 같은 테이블끼리 모음)
+ * - 상품 row는 item_id 순으로 select ... for update로 한 번에 잡고 엔티티에서 차감 -> 같은 상품이 여러 줄이어도 update 1번
+ *   재고 shard를 쓰는 상품은 StockManager로 shard에서, 재고 장부를 쓰는 상품은 장부에서 예약
+ *   장부를 쓰는 상품은 락 없이 조회한다. (장부 주문끼리 item row 락을 기다리지 않게)
+ *   잡은 뒤에 장부가 켜져 있으면 장부에서 예약, 그 사이 장부가 꺼지면(StockLedgerSwitchedException) chunk를 다시 주문
+ * - 주문 생성(배송정보, 요약, 이벤트)은 OrderService.createOrder와 같다.
+ * - 회원/상품이 없거나 재고가 모자란 줄만 실패하고 나머지는 주문
+ *   chunk 트랜잭션 자체가 실패하면(DB 오류 등) 그 chunk의 모든 줄이 실패
+ */
+@Slf4j
+@Service
+public class OrderBatchService {
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+    private final OrderService orderService;
+    private final StockManager stockManager;
+    private final StockLedger stockLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public OrderBatchService(MemberRepository memberRepository, ItemRepository itemRepository,
+                             OrderService orderService, StockManager stockManager, StockLedger stockLedger,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${jpashop.order.batch.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("jpashop.order.batch.chunk-size는 1 이상이어야 합니다.");
+        }
+        this.memberRepository = memberRepository;
+        this.itemRepository = itemRepository;
+        this.orderService = orderService;
+        this.stockManager = stockManager;
+        this.stockLedger = stockLedger;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 일괄 주문, 요청 줄 순서대로 결과
+     */
+    public List<OrderBatchResult> order(List<OrderBatchLine> lines) {
+        List<OrderBatchResult> results = new ArrayList<>(lines.size());
+        for (int from = 0; from < lines.size(); from += chunkSize) {
+            int offset = from;
+            List<OrderBatchLine> chunk = lines.subList(from, Math.min(from + chunkSize, lines.size()));
+            try {
+                results.addAll(orderChunkWithRetry(chunk, offset));
+            } catch (RuntimeException e) {
+                log.warn("batch order chunk failed: lines {} ~ {}", offset, offset + chunk.size() - 1, e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(OrderBatchResult.failure(offset + i, "주문 처리 실패: " + e.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+
+    //chunk 도중 재고 장부가 켜지거나 꺼지면 롤백하고 다시 주문
+    private List<OrderBatchResult> orderChunkWithRetry(List<OrderBatchLine> chunk, int offset) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> orderChunk(chunk, offset));
+            } catch (StockLedgerSwitchedException e) {
+                if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private List<OrderBatchResult> orderChunk(List<OrderBatchLine> lines, int offset) {
+        Map<Long, Member> members = toMapById(distinct(lines, OrderBatchLine::getMemberId),
+                memberRepository::findAll, Member::getId);
+
+        //shard, 재고 장부를 쓰지 않는 상품은 item_id 순으로 잡는다. (동시에 도는 일괄 주문끼리 같은 순서)
+        List<Long> itemIds = distinct(lines, OrderBatchLine::getItemId);
+        Set<Long> ledgerItemIds = itemIds.stream().filter(stockLedger::isManaged).collect(toSet());
+        List<Long> directItemIds = itemIds.stream().filter(id -> !ledgerItemIds.contains(id)).collect(toList());
+        Map<Long, Item> lockedItems = toMapById(directItemIds, itemRepository::findAllUnshardedForUpdate, Item::getId);
+        List<Long> unlockedItemIds = itemIds.stream().filter(id -> !lockedItems.containsKey(id)).collect(toList());
+        Map<Long, Item> unlockedItems = toMapById(unlockedItemIds, itemRepository::findAll, Item::getId);
+
+        //재고는 item_id 순으로 차감 (shard row도 주문끼리 같은 순서로 잡는다), 결과는 요청 줄 순서
+        List<Integer> stockOrder = IntStream.range(0, lines.size()).boxed()
+                .sorted(comparing(i -> lines.get(i).getItemId(), nullsLast(naturalOrder())))
+                .collect(toList());
+        OrderBatchResult[] results = new OrderBatchResult[lines.size()];
+        for (int i : stockOrder) {
+            OrderBatchLine line = lines.get(i);
+            int index = offset + i;
+            Member member = members.get(line.getMemberId());
+            if (member == null) {
+                results[i] = OrderBatchResult.failure(index, "회원이 없습니다: " + line.getMemberId());
+                continue;
+            }
+            if (line.getCount() < 1) {
+                results[i] = OrderBatchResult.failure(index, "주문 수량은 1 이상이어야 합니다.");
+                continue;
+            }
+            if (!lockedItems.containsKey(line.getItemId()) && !unlockedItems.containsKey(line.getItemId())) {
+                results[i] = OrderBatchResult.failure(index, "상품이 없습니다: " + line.getItemId());
+                continue;
+            }
+
+            OrderItem orderItem;
+            try {
+                orderItem = takeStock(line, lockedItems.get(line.getItemId()), ledgerItemIds);
+            } catch (NotEnoughStockException e) {
+                results[i] = OrderBatchResult.failure(index, e.getMessage());
+                continue;
+            }
+            results[i] = OrderBatchResult.success(index, orderService.createOrder(member, orderItem));
+        }
+        return Arrays.asList(results);
+    }
+
+    //잡아둔 상품은 엔티티에서 차감 (update는 flush 때 상품마다 1번)
+    //잡아둔 상품은 락을 잡은 뒤 장부가 켜졌는지 다시 본다. (장부는 item row 락을 잡고 켜지므로 이후에는 바뀌지 않는다.)
+    private OrderItem takeStock(OrderBatchLine line, Item lockedItem, Set<Long> ledgerItemIds) {
+        Long itemId = line.getItemId();
+        int count = line.getCount();
+        if (ledgerItemIds.contains(itemId) || stockLedger.isManaged(itemId)) {
+            //조회 후 장부가 꺼졌으면 StockLedgerSwitchedException
+            StockLedger.Reservation reservation = stockLedger.tryReserve(itemId, count);
+            if (reservation == null) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            stockLedger.releaseOnRollback(reservation);
+            Item item = lockedItem != null ? lockedItem : itemRepository.findOne(itemId);
+            return OrderItem.createOrderItemPending(item, item.getPrice(), count);
+        }
+        if (lockedItem != null) {
+            lockedItem.removeStock(count);
+            return OrderItem.createOrderItemReserved(lockedItem, lockedItem.getPrice(), count);
+        }
+        Item item = stockManager.removeStock(itemId, count, StockStrategy.ATOMIC_UPDATE);
+        return OrderItem.createOrderItemReserved(item, item.getPrice(), count);
+    }
+
+    private static List<Long> distinct(List<OrderBatchLine> lines, Function<OrderBatchLine, Long> key) {
+        return lines.stream().map(key).filter(Objects::nonNull).distinct().collect(toList());
+    }
+
+    //ids로 IN 조회해서 id -> 엔티티 (ids가 비어 있으면 조회하지 않는다.)
+    private static <T> Map<Long, T> toMapById(List<Long> ids, Function<List<Long>, List<T>> finder, Function<T, Long> id) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return finder.apply(ids).stream().collect(toMap(id, Function.identity()));
+    }
+}
@@ -0,0 +1,11 @@
+package jpabook.jpashop.service;
+
+/**
+ * 주문 조회 전략
+ */
+public enum OrderFetchPlan {
+    V3_FETCH_JOIN,    //엔티티 페치 조인 (1 Query), 작은 조회
+    V5_ONE_PLUS_ONE,  //DTO 직접 조회, 컬렉션 IN 조회 (1 + 1 Query), 큰 조회
+    V5_PAGED,         //DTO 직접 조회 + 페이징 (1 + 1 Query)
+    V6_FLAT           //DTO 플랫 조회 (1 Query), 주문당 상품이 많은 작은 조회
+}
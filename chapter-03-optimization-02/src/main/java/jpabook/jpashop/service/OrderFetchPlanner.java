@@ -0,0 +1,119 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 주문 조회 전략 선택
+ * - 페이징 여부, 전체 주문 수, 주문당 평균 주문상품 수로 전략을 고른다.
+ *   통계는 테이블 전체의 추정 행 수 (count 쿼리 없음, statsTtl 동안 캐시)
+ *   통계는 페이징하지 않는 조회(조건 없는 전체 목록)에만 쓴다. 조회 범위가 테이블 전체이므로 범위별로 세지 않는다.
+ *   범위 조건(커서, 검색 조건)이 있는 조회는 통계를 보지 않고 페이징 전략으로 간다.
+ * - 페이징 -> V5_PAGED
+ * - 주문 수가 적고 주문당 상품이 적으면 -> V3_FETCH_JOIN (조인 결과 row가 적어서 쿼리 1번이 가장 싸다)
+ * - 주문당 상품이 많고 전체 row가 적으면 -> V6_FLAT (엔티티를 만들지 않는 플랫 조회 1번)
+ * - 그 외 큰 조회 -> V5_ONE_PLUS_ONE (루트 1번 + 컬렉션 IN 조회)
+ */
+@Component
+public class OrderFetchPlanner {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final Map<OrderFetchPlan, Counter> planCounters = new EnumMap<>(OrderFetchPlan.class);
+
+    private final long statsTtlMillis;
+    private final long fetchJoinMaxOrders;
+    private final double denseMinItemsPerOrder;
+    private final long flatMaxRows;
+
+    private volatile Statistics statistics;
+
+    public OrderFetchPlanner(OrderQueryRepository orderQueryRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${jpashop.order.planner.stats-ttl-millis:30000}") long statsTtlMillis,
+                             @Value("${jpashop.order.planner.fetch-join-max-orders:1000}") long fetchJoinMaxOrders,
+                             @Value("${jpashop.order.planner.dense-min-items-per-order:4}") double denseMinItemsPerOrder,
+                             @Value("${jpashop.order.planner.flat-max-rows:50000}") long flatMaxRows) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.statsTtlMillis = statsTtlMillis;
+        this.fetchJoinMaxOrders = fetchJoinMaxOrders;
+        this.denseMinItemsPerOrder = denseMinItemsPerOrder;
+        this.flatMaxRows = flatMaxRows;
+        for (OrderFetchPlan plan : OrderFetchPlan.values()) {
+            planCounters.put(plan, Counter.builder("jpashop.order.fetch_plan")
+                    .description("주문 조회 전략 선택 횟수")
+                    .tag("plan", plan.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @param paged 페이징(커서, limit) 요청 여부, false면 조건 없는 전체 목록
+     */
+    public OrderFetchPlan plan(boolean paged) {
+        OrderFetchPlan plan = choose(paged);
+        planCounters.get(plan).increment();
+        return plan;
+    }
+
+    private OrderFetchPlan choose(boolean paged) {
+        if (paged) {
+            return OrderFetchPlan.V5_PAGED;
+        }
+
+        //페이징하지 않는 조회는 전체 주문을 읽는다.
+        Statistics stats = currentStatistics();
+        long orders = stats.getOrderCount();
+        double itemsPerOrder = stats.getItemsPerOrder();
+        //플랫 조회는 전체 주문상품 수만큼 row
+        if (itemsPerOrder >= denseMinItemsPerOrder && orders * itemsPerOrder <= flatMaxRows) {
+            return OrderFetchPlan.V6_FLAT;
+        }
+        if (orders <= fetchJoinMaxOrders) {
+            return OrderFetchPlan.V3_FETCH_JOIN;
+        }
+        return OrderFetchPlan.V5_ONE_PLUS_ONE;
+    }
+
+    private Statistics currentStatistics() {
+        Statistics current = statistics;
+        if (current == null || current.isExpired(statsTtlMillis)) {
+            synchronized (this) {
+                current = statistics;
+                if (current == null || current.isExpired(statsTtlMillis)) {
+                    current = new Statistics(orderQueryRepository.estimateOrderCount(),
+                            orderQueryRepository.estimateOrderItemCount());
+                    statistics = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Getter
+    static class Statistics {
+
+        private final long orderCount;
+        private final long orderItemCount;
+        private final long collectedAt = System.currentTimeMillis();
+
+        Statistics(long orderCount, long orderItemCount) {
+            this.orderCount = orderCount;
+            this.orderItemCount = orderItemCount;
+        }
+
+        double getItemsPerOrder() {
+            return orderCount == 0 ? 0 : (double) orderItemCount / orderCount;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - collectedAt > ttlMillis;
+        }
+    }
+}
@@ -2,15 +2,34 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.event.OrderChangedEvent;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.StockLedgerSwitchedException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 
 @Service
 @Transactional(readOnly = true)
@@ -19,35 +38,235 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
+    private final OrderSummaryService orderSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
     private final ItemRepository itemRepository;
+    private final StockManager stockManager;
+    private final StockLedger stockLedger;
+    private final StockProperties stockProperties;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * 주문
+     * 주문 (설정된 재고 차감 방식, jpashop.stock.strategy)
      */
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Long order(Long memberId, Long itemId, int count) {
+        return order(memberId, itemId, count, stockProperties.getStrategy());
+    }
+
+    /**
+     * 주문
+     * - 재고 장부(StockLedger)를 켠 상품은 strategy와 상관없이 장부에서 예약
+     * - 주문 중에 장부가 켜지거나 꺼지면(StockLedgerSwitchedException) 바뀐 방식으로 다시 주문
+     * - OPTIMISTIC은 재고 충돌시 트랜잭션을 새로 시작해서 재시도
+     *   이미 진행 중인 트랜잭션에 참여한 경우에는 롤백 전용이 되므로 재시도하지 않는다.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long order(Long memberId, Long itemId, int count, StockStrategy strategy) {
+        boolean retry = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (stockLedger.isManaged(itemId)) {
+                    return orderFromLedger(memberId, itemId, count);
+                }
+                return orderDirect(memberId, itemId, count, strategy, retry);
+            } catch (StockLedgerSwitchedException e) {
+                if (!retry || attempt >= stockProperties.getMaxAttempts()) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private Long orderDirect(Long memberId, Long itemId, int count, StockStrategy strategy, boolean retry) {
+        if (strategy != StockStrategy.OPTIMISTIC || !retry) {
+            return transactionTemplate.execute(status -> doOrder(memberId, itemId, count, strategy));
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> doOrder(memberId, itemId, count, strategy));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= stockProperties.getMaxAttempts()) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 재고 장부(StockLedger)를 쓰는 상품 주문
+     * - 트랜잭션을 열기 전에 메모리에서 예약, 품절이면 DB 접근 없이 거절
+     * - item row는 수정하지 않고 주문상품을 재고 미반영(stockPending)으로 저장
+     */
+    private Long orderFromLedger(Long memberId, Long itemId, int count) {
+        StockLedger.Reservation reservation = stockLedger.tryReserve(itemId, count);
+        if (reservation == null) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                stockLedger.releaseOnRollback(reservation);
+                Member member = memberRepository.findOne(memberId);
+                Item item = itemRepository.findOne(itemId);
+                return createOrder(member, OrderItem.createOrderItemPending(item, item.getPrice(), count));
+            });
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+    }
+
+    private Long doOrder(Long memberId, Long itemId, int count, StockStrategy strategy) {
 
         //엔티티 조회
         Member member = memberRepository.findOne(memberId);
-        Item item = itemRepository.findOne(itemId);
+
+        //재고 차감
+        Item item = stockManager.removeStock(itemId, count, strategy);
+
+        //주문상품 생성
+        OrderItem orderItem = OrderItem.createOrderItemReserved(item, item.getPrice(), count);
+
+        return createOrder(member, orderItem);
+    }
+
+    /**
+     * 여러 상품 주문 (장바구니, 주문 1건에 주문상품 여러 개)
+     * - 상품은 IN 조회 1번, shard, 재고 장부를 쓰지 않는 상품은 item_id 순으로 select ... for update
+     *   장바구니끼리 상품이 겹쳐도 같은 순서로 잡으므로 교착 상태가 생기지 않는다.
+     * - 잡아둔 상품은 엔티티에서 차감 -> 커밋할 때 update (hibernate.order_updates로 item_id 순, batch)
+     *   재고 shard를 쓰는 상품은 item_id 순으로 StockManager에서, 재고 장부를 쓰는 상품은 락 없이 장부에서 예약
+     *   잡은 뒤에 장부가 켜져 있으면 장부에서 예약, 그 사이 장부가 꺼지면(StockLedgerSwitchedException) 다시 주문
+     * - 한 줄이라도 재고가 모자라면 주문 전체 롤백
+     * - 주문, 주문상품은 커밋할 때 flush 1번에 batch insert
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long order(Long memberId, List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("주문상품이 없습니다.");
+        }
+        boolean retry = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> doOrder(memberId, lines));
+            } catch (StockLedgerSwitchedException e) {
+                if (!retry || attempt >= stockProperties.getMaxAttempts()) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private Long doOrder(Long memberId, List<OrderLine> lines) {
+        Member member = memberRepository.findOne(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("회원이 없습니다: " + memberId);
+        }
+
+        //같은 상품이 여러 줄이면 수량을 합쳐서 차감, item_id 순
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (OrderLine line : lines) {
+            if (line.getItemId() == null || line.getCount() < 1) {
+                throw new IllegalArgumentException("상품 id가 있고 주문 수량은 1 이상이어야 합니다.");
+            }
+            counts.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+        List<Long> itemIds = new ArrayList<>(counts.keySet());
+
+        //재고 장부를 쓰는 상품은 락을 잡지 않는다.
+        Set<Long> ledgerItemIds = itemIds.stream().filter(stockLedger::isManaged).collect(toCollection(HashSet::new));
+        List<Long> directItemIds = itemIds.stream().filter(id -> !ledgerItemIds.contains(id)).collect(toList());
+
+        Map<Long, Item> items = new HashMap<>();
+        if (!directItemIds.isEmpty()) {
+            itemRepository.findAllUnshardedForUpdate(directItemIds).forEach(item -> items.put(item.getId(), item));
+        }
+        Set<Long> lockedItemIds = new HashSet<>(items.keySet());
+        List<Long> unlockedItemIds = itemIds.stream().filter(id -> !lockedItemIds.contains(id)).collect(toList());
+        if (!unlockedItemIds.isEmpty()) {
+            //영속성 컨텍스트에 올려두면 StockManager가 다시 조회하지 않는다.
+            itemRepository.findAll(unlockedItemIds).forEach(item -> items.put(item.getId(), item));
+        }
+
+        for (Long itemId : itemIds) {
+            int count = counts.get(itemId);
+            //잡아둔 상품도 락을 잡기 전에 장부가 켜졌으면 장부에서 (조회 후 장부가 꺼졌으면 tryReserve에서 물러난다.)
+            if (ledgerItemIds.contains(itemId) || stockLedger.isManaged(itemId)) {
+                StockLedger.Reservation reservation = stockLedger.tryReserve(itemId, count);
+                if (reservation == null) {
+                    throw new NotEnoughStockException("need more stock");
+                }
+                stockLedger.releaseOnRollback(reservation);
+                ledgerItemIds.add(itemId);
+            } else if (lockedItemIds.contains(itemId)) {
+                items.get(itemId).removeStock(count);
+            } else {
+                //shard를 쓰는 상품 (없는 상품이면 IllegalArgumentException)
+                items.put(itemId, stockManager.removeStock(itemId, count, StockStrategy.ATOMIC_UPDATE));
+            }
+        }
+
+        //주문상품은 요청 줄 순서대로
+        OrderItem[] orderItems = new OrderItem[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            Item item = items.get(line.getItemId());
+            orderItems[i] = ledgerItemIds.contains(item.getId())
+                    ? OrderItem.createOrderItemPending(item, item.getPrice(), line.getCount())
+                    : OrderItem.createOrderItemReserved(item, item.getPrice(), line.getCount());
+        }
+        return createOrder(member, orderItems);
+    }
+
+    /**
+     * 재고를 이미 차감한 상품 주문 (재고 예약 확정)
+     * - 재고를 차감한 트랜잭션 안에서만 호출
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long orderReserved(Member member, Item item, int count) {
+        return createOrder(member, OrderItem.createOrderItemReserved(item, item.getPrice(), count));
+    }
+
+    /**
+     * 주문 생성 (배송정보, 주문 저장, 주문 요약, 주문 변경 이벤트)
+     * - 재고를 차감한 트랜잭션 안에서만 호출 (일괄 주문 OrderBatchService도 같이 쓴다.)
+     */
+    Long createOrder(Member member, OrderItem... orderItems) {
 
         //배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
         delivery.setStatus(DeliveryStatus.READY);
 
-        //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
-
         //주문 생성
-        Order order = Order.createOrder(member, delivery, orderItem);
+        Order order = Order.createOrder(member, delivery, orderItems);
 
         //주문 저장
         orderRepository.save(order);
 
+        //주문 요약 저장 (새 주문이므로 조회 없이)
+        orderSummaryService.create(order);
+
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), OrderChangedEvent.Type.CREATED));
+
         return order.getId();
     }
 
+    //0 ~ backoffMillis * 2^(attempt - 1) 임의 대기 (동시에 충돌한 주문들이 다시 같이 충돌하지 않게)
+    private void backoff(int attempt) {
+        long max = stockProperties.getBackoffMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 재시도 중 인터럽트", e);
+        }
+    }
+
     /**
      * 주문 취소
      */
@@ -55,12 +274,22 @@ public class OrderService {
     public void cancelOrder(Long orderId) {
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
+        //재고 장부를 쓰는 상품은 커밋 후 주문 가능 수량 반환
+        for (OrderItem orderItem : order.getOrderItems()) {
+            stockLedger.adjustAfterCommit(orderItem.getItem().getId(), orderItem.getCount());
+        }
         //주문 취소
         order.cancel();
+        //주문 요약 갱신
+        orderSummaryService.refresh(order);
+
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), OrderChangedEvent.Type.CANCELED));
     }
 
-    //검색
-    public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+    /**
+     * 주문 검색, 주문시간 순 키셋 페이징 (OrderSearch의 모든 조건)
+     */
+    public List<Order> findOrders(OrderSearch orderSearch, OrderSearchCursor cursor, int limit) {
+        return orderRepository.findAllBySearch(orderSearch, cursor, limit);
     }
 }
@@ -0,0 +1,112 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.event.MemberChangedEvent;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderSummaryService {
+
+    private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+
+    /**
+     * 주문 요약 생성/갱신 (주문 트랜잭션 안에서 호출)
+     */
+    @Transactional
+    public void refresh(Order order) {
+        OrderSummary orderSummary = orderSummaryRepository.findOne(order.getId());
+        if (orderSummary == null) {
+            orderSummaryRepository.save(OrderSummary.createOrderSummary(order));
+        } else {
+            orderSummary.refresh(order);
+        }
+    }
+
+    /**
+     * 새 주문의 주문 요약 저장 (조회 없이 persist, 주문 트랜잭션 안에서 호출)
+     */
+    @Transactional
+    public void create(Order order) {
+        orderSummaryRepository.save(OrderSummary.createOrderSummary(order));
+    }
+
+    /**
+     * 회원 이름이 바뀌면 그 회원의 주문 요약 회원 이름 갱신 (회원 트랜잭션 커밋 후 새 트랜잭션)
+     * - 회원 수정 커밋과 이 갱신 사이에 잠깐 이전 이름이 보일 수 있다.
+     *   그 사이 수정 전 회원을 읽고 만든 주문 요약도 이전 이름으로 남을 수 있다. (rebuild로 맞춘다.)
+     * - 가입 이벤트도 여기로 오지만 주문이 없으므로 바뀌는 row가 없다.
+     */
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (event.isRemoved() || event.getName() == null) {
+            return;
+        }
+        orderSummaryRepository.updateMemberName(event.getMemberId(), event.getName());
+    }
+
+    public List<OrderSummary> findOrderSummaries(OrderCursor cursor, int limit) {
+        return orderSummaryRepository.findAll(cursor, limit);
+    }
+
+    /**
+     * 주문 요약 재구성
+     * - 주문 테이블을 order_id 순으로 batchSize 만큼씩 읽어서 채운다.
+     *   batch의 주문 요약은 IN 조회 1번 (주문마다 조회하지 않는다.)
+     * - batch 마다 트랜잭션을 커밋하고 영속성 컨텍스트를 비운다.
+     * @return 처리한 주문 수
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuild(int batchSize) {
+        long total = 0;
+        OrderCursor cursor = OrderCursor.first();
+        while (true) {
+            OrderCursor batchCursor = cursor;
+            List<Long> orderIds = transactionTemplate.execute(status -> rebuildBatch(batchCursor, batchSize));
+            total += orderIds.size();
+            if (orderIds.size() < batchSize) {
+                return total;
+            }
+            cursor = OrderCursor.after(orderIds.get(orderIds.size() - 1));
+        }
+    }
+
+    private List<Long> rebuildBatch(OrderCursor cursor, int batchSize) {
+        //orderItems는 default_batch_fetch_size로 IN 조회
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(cursor, batchSize);
+        List<Long> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        Map<Long, OrderSummary> orderSummaries = orderSummaryRepository.findAll(orderIds).stream()
+                .collect(Collectors.toMap(OrderSummary::getId, Function.identity()));
+        for (Order order : orders) {
+            OrderSummary orderSummary = orderSummaries.get(order.getId());
+            if (orderSummary == null) {
+                orderSummaryRepository.save(OrderSummary.createOrderSummary(order));
+            } else {
+                orderSummary.refresh(order);
+            }
+        }
+        em.flush();
+        em.clear();
+        return orderIds;
+    }
+}
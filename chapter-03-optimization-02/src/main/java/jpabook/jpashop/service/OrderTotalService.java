@@ -0,0 +1,61 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.event.OrderChangedEvent;
+import jpabook.jpashop.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 주문 전체 건수
+ * - 페이징 응답 total을 매 페이지마다 count 쿼리 없이 제공
+ * - CACHED 카운터는 기동 후 정확한 count로 한 번 맞추고, 이후 주문 생성 커밋마다 1 증가 (취소된 주문도 목록에 포함)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderTotalService {
+
+    private static final long UNKNOWN = -1;
+
+    private final OrderRepository orderRepository;
+    private final AtomicLong cachedTotal = new AtomicLong(UNKNOWN);
+
+    public long getTotal(TotalMode mode) {
+        switch (mode) {
+            case CACHED:
+                return getCachedTotal();
+            case ESTIMATE:
+                return orderRepository.estimateCount();
+            default:
+                return orderRepository.count();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initCachedTotal() {
+        cachedTotal.set(orderRepository.count());
+    }
+
+    @TransactionalEventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.getType() == OrderChangedEvent.Type.CREATED) {
+            //아직 초기화 전이면 초기화할 때 count에 포함된다.
+            cachedTotal.getAndUpdate(total -> total == UNKNOWN ? UNKNOWN : total + 1);
+        }
+    }
+
+    private long getCachedTotal() {
+        long total = cachedTotal.get();
+        if (total == UNKNOWN) {
+            cachedTotal.compareAndSet(UNKNOWN, orderRepository.count());
+            total = cachedTotal.get();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,341 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.StockLedgerSwitchedException;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 한정 판매 상품용 메모리 재고 장부 (상품별로 켜서 사용)
+ * - 주문 가능 수량을 AtomicInteger(CAS)로 관리, 트랜잭션을 열기 전에 예약/품절 거절
+ * - 주문 트랜잭션은 item row를 수정하지 않고 주문상품을 stockPending = true로 저장 -> item row 락 없음
+ * - flush(주기적): 장부를 켠 상품마다 미반영 주문상품을 모아서 item.stock_quantity에서 한 번에 차감
+ *   (주기 작업은 order_item 전체를 찾지 않고 장부를 켠 상품만 본다.)
+ * - 장애 복구: 미반영 수량은 커밋된 주문상품(stockPending)에 남아 있으므로
+ *   기동시 한 번 미반영 주문상품이 있는 상품을 모두 찾아서 반영 (실패하면 다음 주기에 다시)
+ *   장부를 켤 때 주문 가능 수량 = stock_quantity - 미반영 수량
+ *   커밋 전에 죽은 예약은 DB에 없으므로 따로 되돌릴 것이 없다.
+ * - 켜기/끄기 중에 들어온 주문
+ *   켜기: item row 락을 잡고 시작 수량을 읽고 장부를 연다. item row에서 직접 차감하는 주문은 row 락을 잡은 뒤
+ *   checkDirect로 확인하므로, 장부가 이미 열렸으면 롤백하고 장부로 다시 주문한다. (StockLedgerSwitchedException)
+ *   끄기: 새 예약을 막고 진행 중인 주문 트랜잭션이 끝나기를 기다린 뒤 반영하고 나서 장부를 닫는다.
+ *   그 사이 들어온 주문은 StockLedgerSwitchedException으로 물러났다가 다시 주문한다.
+ * - 애플리케이션 인스턴스 1개 기준 (여러 인스턴스에서 같은 상품을 켜면 각자 전체 재고를 판다.)
+ */
+@Slf4j
+@Component
+public class StockLedger {
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    private static final long DISABLE_TIMEOUT_MILLIS = 10000;
+
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    //켜기/끄기는 상품마다 따로 (한 상품의 끄기가 진행 중인 주문을 기다리는 동안 다른 상품은 막지 않는다.)
+    private final Map<Long, Object> switchLocks = new ConcurrentHashMap<>();
+    //기동시 복구(전체 미반영 주문상품 반영)를 마쳤는지
+    private volatile boolean recovered;
+
+    public StockLedger(ItemRepository itemRepository, TransactionTemplate transactionTemplate) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isManaged(Long itemId) {
+        return entries.containsKey(itemId);
+    }
+
+    /**
+     * 주문 가능 수량, 장부를 쓰지 않는 상품이면 null
+     */
+    public Integer getAvailable(Long itemId) {
+        Entry entry = entries.get(itemId);
+        return entry == null ? null : entry.available.get();
+    }
+
+    /**
+     * 장부 사용 시작, 주문 가능 수량 = stock_quantity - 미반영 수량
+     * - item row 락을 잡고 읽으므로 이미 row에서 직접 차감한 주문이 커밋할 때까지 기다린다.
+     * - 락을 잡은 채로 장부를 열어서, 이후에 row 락을 잡는 직접 차감은 checkDirect에서 물러난다.
+     */
+    public int enable(Long itemId) {
+        synchronized (switchLock(itemId)) {
+            Entry entry = entries.get(itemId);
+            if (entry != null) {
+                return entry.available.get();
+            }
+            int seed;
+            try {
+                seed = transactionTemplate.execute(status -> {
+                    Item item = itemRepository.findOneForUpdate(itemId);
+                    if (item == null) {
+                        throw new IllegalArgumentException("상품이 없습니다: " + itemId);
+                    }
+                    if (item.getStockShards() > 0) {
+                        throw new IllegalArgumentException("재고 shard를 쓰는 상품은 재고 장부를 쓸 수 없습니다: " + itemId);
+                    }
+                    int available = Math.max(item.getStockQuantity() - (int) itemRepository.sumStockPending(itemId), 0);
+                    entries.put(itemId, new Entry(available));
+                    return available;
+                });
+            } catch (RuntimeException e) {
+                entries.remove(itemId);
+                throw e;
+            }
+            log.info("stock ledger enabled: item={}, available={}", itemId, seed);
+            return seed;
+        }
+    }
+
+    /**
+     * 장부 사용 중지, 이후 주문은 StockStrategy로 item row에서 직접 차감
+     * - 새 예약을 막고, 진행 중인 주문 트랜잭션이 끝나면 미반영 주문상품을 반영한 뒤 장부를 닫는다.
+     *   (반영 전에 직접 차감을 허용하면 아직 줄지 않은 stock_quantity를 보고 초과 판매)
+     */
+    public void disable(Long itemId) {
+        synchronized (switchLock(itemId)) {
+            Entry entry = entries.get(itemId);
+            if (entry == null) {
+                return;
+            }
+            entry.closing = true;
+            try {
+                entry.awaitSettled(DISABLE_TIMEOUT_MILLIS);
+                flush(itemId);
+            } catch (RuntimeException e) {
+                entry.closing = false;
+                throw e;
+            }
+            entries.remove(itemId);
+            log.info("stock ledger disabled: item={}", itemId);
+        }
+    }
+
+    private Object switchLock(Long itemId) {
+        return switchLocks.computeIfAbsent(itemId, id -> new Object());
+    }
+
+    /**
+     * item row에서 직접 차감하기 전 확인 (item row 락을 잡은 트랜잭션 안에서 호출)
+     * - 장부는 row 락을 잡고 열리므로, 락을 잡은 뒤에도 장부가 없으면 이 차감은 장부 시작 수량에 포함된다.
+     * - 그 사이 장부가 열렸으면 StockLedgerSwitchedException (롤백하고 장부로 다시 주문)
+     */
+    public void checkDirect(Long itemId) {
+        if (isManaged(itemId)) {
+            throw new StockLedgerSwitchedException("재고 장부를 쓰는 상품으로 바뀌었습니다: " + itemId);
+        }
+    }
+
+    /**
+     * 재고 예약 (CAS), 수량이 모자라면 null
+     * - 장부가 없거나 끄는 중이면 StockLedgerSwitchedException
+     */
+    public Reservation tryReserve(Long itemId, int count) {
+        Entry entry = entries.get(itemId);
+        if (entry == null) {
+            throw new StockLedgerSwitchedException("재고 장부를 쓰지 않는 상품입니다: " + itemId);
+        }
+        //끄기와 순서: 진행 중 수를 먼저 올리고 closing을 본다. (끄기는 closing을 켜고 진행 중 수를 본다.)
+        entry.inFlight.incrementAndGet();
+        if (entry.closing) {
+            entry.inFlight.decrementAndGet();
+            throw new StockLedgerSwitchedException("재고 장부를 끄는 중입니다: " + itemId);
+        }
+        while (true) {
+            int current = entry.available.get();
+            if (current < count) {
+                entry.inFlight.decrementAndGet();
+                return null;
+            }
+            if (entry.available.compareAndSet(current, current - count)) {
+                return new Reservation(entry, count);
+            }
+        }
+    }
+
+    /**
+     * 현재 트랜잭션이 끝나면 예약 정리, 롤백이면 예약 반환
+     */
+    public void releaseOnRollback(Reservation reservation) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    reservation.settle();
+                } else {
+                    reservation.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 주문 가능 수량 조정 (주문 취소, 상품 재고 수정)
+     */
+    public void adjustAfterCommit(Long itemId, int delta) {
+        if (delta == 0 || !isManaged(itemId)) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                adjust(itemId, delta);
+            }
+        });
+    }
+
+    /**
+     * 기동시 이전 실행에서 반영하지 못한 주문상품 반영 (장애 복구)
+     * - 미반영 주문상품이 있는 상품을 찾으려고 order_item을 전체 조회하므로 기동시에만
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<Long> itemIds;
+        try {
+            itemIds = transactionTemplate.execute(status -> itemRepository.findStockPendingItemIds());
+        } catch (RuntimeException e) {
+            log.warn("stock ledger recovery failed, retry on next flush", e);
+            return;
+        }
+        itemIds.forEach(this::flushQuietly);
+        recovered = true;
+    }
+
+    /**
+     * 장부를 켠 상품의 미반영 주문상품을 상품별로 모아서 재고에 반영
+     * - 끈 상품은 끌 때 반영했으므로 남은 주문상품이 없다.
+     * - 기동시 복구가 실패했으면 다시 복구
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.ledger.flush-interval-millis:1000}",
+            initialDelayString = "${jpashop.stock.ledger.flush-interval-millis:1000}")
+    public void flushAll() {
+        if (!recovered) {
+            recover();
+        }
+        new ArrayList<>(entries.keySet()).forEach(this::flushQuietly);
+    }
+
+    private void flushQuietly(Long itemId) {
+        try {
+            flush(itemId);
+        } catch (RuntimeException e) {
+            log.warn("stock ledger flush failed: item={}", itemId, e);
+        }
+    }
+
+    /**
+     * 상품 하나의 미반영 주문상품 반영, 반영한 수량
+     */
+    public int flush(Long itemId) {
+        int total = 0;
+        while (true) {
+            Integer flushed = transactionTemplate.execute(status -> {
+                List<Object[]> pending = itemRepository.findStockPending(itemId, FLUSH_BATCH_SIZE);
+                if (pending.isEmpty()) {
+                    return null;
+                }
+                List<Long> orderItemIds = new ArrayList<>(pending.size());
+                int quantity = 0;
+                for (Object[] row : pending) {
+                    orderItemIds.add((Long) row[0]);
+                    quantity += (Integer) row[1];
+                }
+                if (!itemRepository.applyStockPending(itemId, orderItemIds, quantity)) {
+                    //조회 후 취소된 주문상품이 있다. 롤백하고 다시 조회
+                    status.setRollbackOnly();
+                    return 0;
+                }
+                return quantity;
+            });
+            if (flushed == null) {
+                return total;
+            }
+            total += flushed;
+        }
+    }
+
+    private void adjust(Long itemId, int delta) {
+        Entry entry = entries.get(itemId);
+        if (entry != null) {
+            entry.available.addAndGet(delta);
+        }
+    }
+
+    /**
+     * 상품 하나의 장부
+     */
+    private static class Entry {
+
+        private final AtomicInteger available;
+        private final AtomicInteger inFlight = new AtomicInteger(); //예약 후 트랜잭션이 끝나지 않은 주문 수
+        private volatile boolean closing; //끄는 중, 새 예약을 받지 않는다.
+
+        Entry(int available) {
+            this.available = new AtomicInteger(available);
+        }
+
+        void awaitSettled(long timeoutMillis) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (inFlight.get() > 0) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("진행 중인 재고 장부 주문이 끝나지 않았습니다.");
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("재고 장부 끄기 중 인터럽트", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 재고 예약, 반환/정리는 한 번만
+     */
+    public static class Reservation {
+
+        private final Entry entry;
+        private final int count;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Reservation(Entry entry, int count) {
+            this.entry = entry;
+            this.count = count;
+        }
+
+        /**
+         * 예약 반환 (주문 실패)
+         */
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                entry.available.addAndGet(count);
+                entry.inFlight.decrementAndGet();
+            }
+        }
+
+        //주문 커밋, 수량은 미반영 주문상품으로 넘어갔다.
+        private void settle() {
+            if (done.compareAndSet(false, true)) {
+                entry.inFlight.decrementAndGet();
+            }
+        }
+    }
+}
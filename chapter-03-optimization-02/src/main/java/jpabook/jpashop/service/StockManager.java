@@ -0,0 +1,115 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockShardRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 재고 차감 (StockStrategy)
+ * - 트랜잭션 안에서 호출, 차감한 상품을 반환
+ * - OPTIMISTIC의 충돌은 커밋(flush)할 때 발생하므로 재시도는 트랜잭션을 시작한 쪽(OrderService)에서
+ * - 재고 shard를 쓰는 상품은 strategy와 상관없이 shard에서 차감 (item row는 락을 잡지 않는다.)
+ * - item row에서 차감하면 row 락을 잡은 뒤 재고 장부가 켜졌는지 확인 (StockLedger.checkDirect)
+ *   OPTIMISTIC은 update를 바로 flush해서 row 락을 잡는다.
+ * - 재고 반환(예약 해제/만료)도 shard를 쓰는 상품은 shard 하나에 더한다. (item row로 몰리지 않게)
+ */
+@Component
+@RequiredArgsConstructor
+public class StockManager {
+
+    private final ItemRepository itemRepository;
+    private final ItemStockShardRepository itemStockShardRepository;
+    private final StockProperties stockProperties;
+    private final StockLedger stockLedger;
+
+    public Item removeStock(Long itemId, int count, StockStrategy strategy) {
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("상품이 없습니다: " + itemId);
+        }
+        if (item.getStockShards() > 0) {
+            return removeStockFromShards(item, count);
+        }
+        switch (strategy) {
+            case ATOMIC_UPDATE:
+                return removeStockAtomically(item, count);
+            case PESSIMISTIC_WRITE:
+                itemRepository.refreshForUpdate(item);
+                stockLedger.checkDirect(item.getId());
+                item.removeStock(count);
+                return item;
+            case OPTIMISTIC:
+            default:
+                item.removeStock(count);
+                itemRepository.flush();
+                stockLedger.checkDirect(item.getId());
+                return item;
+        }
+    }
+
+    /**
+     * 재고 반환 (예약 해제/만료), 트랜잭션 안에서 호출
+     * - shard를 쓰는 상품은 고른 shard에 update, 그 사이 shard가 꺼졌으면 item row에
+     */
+    public void addStock(Long itemId, int quantity) {
+        Item item = itemRepository.findOne(itemId);
+        int shards = item == null ? 0 : item.getStockShards();
+        if (shards > 0 && itemStockShardRepository.addStock(itemId, firstShard(shards), quantity) > 0) {
+            return;
+        }
+        itemRepository.addStock(itemId, quantity);
+    }
+
+    private Item removeStockAtomically(Item item, int count) {
+        if (itemRepository.removeStock(item.getId(), count) == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        stockLedger.checkDirect(item.getId());
+        //update 쿼리는 영속성 컨텍스트를 거치지 않으므로 차감된 재고, version으로 다시 읽는다.
+        itemRepository.refresh(item);
+        return item;
+    }
+
+    /**
+     * shard 차감
+     * - 고른 shard부터 한 바퀴 돌면서 조건부 update, 성공한 shard 하나만 row 락을 잡는다.
+     * - 어느 shard도 혼자 채울 수 없으면 모든 shard(shard_no 순) -> item row 순으로 락을 잡고 나눠서 차감
+     */
+    private Item removeStockFromShards(Item item, int count) {
+        int shards = item.getStockShards();
+        int first = firstShard(shards);
+        for (int i = 0; i < shards; i++) {
+            if (itemStockShardRepository.removeStock(item.getId(), (first + i) % shards, count) > 0) {
+                itemRepository.refresh(item);
+                return item;
+            }
+        }
+
+        List<ItemStockShard> locked = itemStockShardRepository.findAllForUpdate(item.getId());
+        itemRepository.refreshForUpdate(item);
+        int total = item.getStockQuantity() + locked.stream().mapToInt(ItemStockShard::getQuantity).sum();
+        if (total < count) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        int rest = count;
+        for (ItemStockShard shard : locked) {
+            rest -= shard.take(rest);
+        }
+        item.removeStock(rest);
+        return item;
+    }
+
+    private int firstShard(int shards) {
+        if (stockProperties.getShard().getSelection() == StockShardSelection.THREAD) {
+            return (int) (Thread.currentThread().getId() % shards);
+        }
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 재고 차감 설정
+ * - max-attempts, backoff-millis: OPTIMISTIC 재시도 횟수(첫 시도 포함)와 대기 시간 기준
+ *   n번째 재시도는 0 ~ backoff-millis * 2^(n-1) 사이 임의 시간 대기 (full jitter)
+ * - shard.selection: 재고 shard를 쓰는 상품 주문시 먼저 시도할 shard (StockShardSelection)
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.stock")
+@Getter @Setter
+public class StockProperties {
+
+    private StockStrategy strategy = StockStrategy.ATOMIC_UPDATE;
+    private int maxAttempts = 10;
+    private long backoffMillis = 5;
+    private Shard shard = new Shard();
+
+    @Getter @Setter
+    public static class Shard {
+
+        private StockShardSelection selection = StockShardSelection.RANDOM;
+    }
+}
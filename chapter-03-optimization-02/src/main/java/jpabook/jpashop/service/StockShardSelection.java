@@ -0,0 +1,11 @@
+package jpabook.jpashop.service;
+
+/**
+ * 재고 shard를 쓰는 상품 주문시 먼저 시도할 shard
+ * - RANDOM: 주문마다 임의 shard
+ * - THREAD: 요청 스레드마다 고정된 shard (같은 스레드의 주문은 같은 row를 차감)
+ * 고른 shard가 모자라면 다음 shard 순서로 시도
+ */
+public enum StockShardSelection {
+    RANDOM, THREAD
+}
@@ -0,0 +1,204 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockShardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 재고 shard (주문이 몰리는 상품의 재고를 item_stock_shard row 여러 개로 나눔, 상품별로 켜서 사용)
+ * - 주문은 StockManager가 shard 하나에서 차감 -> 같은 상품 주문끼리 서로 다른 row 락을 잡는다.
+ * - 재분배(주기적): shard 사이 수량 차이가 평균의 1/4을 넘거나 item.stock_quantity에 돌아온 재고가 있으면 고르게 다시 나눔
+ * - 여러 shard를 잡을 때는 shard_no 순 -> item row 순 (주문은 성공한 shard 하나만 잡으므로 교착 없음)
+ * - 재고 장부(StockLedger)와 같이 쓸 수 없다.
+ * - 상품 조회에는 shard 수량이 들어있지 않다. 전체 재고가 필요한 곳에서 getTotalStock으로 따로 읽는다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockShardService {
+
+    private static final int MAX_SHARDS = 64;
+
+    private final ItemRepository itemRepository;
+    private final ItemStockShardRepository itemStockShardRepository;
+    private final StockLedger stockLedger;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 재고를 shards개로 나눔 (이미 나눈 상품이면 합쳐서 다시 나눔)
+     */
+    public void enable(Long itemId, int shards) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("shard 수는 1 ~ " + MAX_SHARDS + " 사이여야 합니다.");
+        }
+        if (stockLedger.isManaged(itemId)) {
+            throw new IllegalStateException("재고 장부를 쓰는 상품은 재고를 나눌 수 없습니다: " + itemId);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Item item = collapse(itemId);
+            List<ItemStockShard> created = new ArrayList<>(shards);
+            for (int shardNo = 0; shardNo < shards; shardNo++) {
+                ItemStockShard shard = ItemStockShard.createItemStockShard(item, shardNo);
+                itemStockShardRepository.save(shard);
+                created.add(shard);
+            }
+            item.setStockShards(shards);
+            //collapse로 shard 수량은 item.stock_quantity에 합쳐져 있다.
+            distribute(item, created, item.getStockQuantity());
+        });
+        log.info("stock shards enabled: item={}, shards={}", itemId, shards);
+    }
+
+    /**
+     * 재고 shard 사용 중지, shard 수량은 item.stock_quantity로 합친다.
+     */
+    public void disable(Long itemId) {
+        transactionTemplate.executeWithoutResult(status -> collapse(itemId).setStockShards(0));
+        log.info("stock shards disabled: item={}", itemId);
+    }
+
+    /**
+     * shard 수량 (shard_no 순), shard를 쓰지 않는 상품이면 빈 목록
+     */
+    public List<Integer> getQuantities(Long itemId) {
+        return transactionTemplate.execute(status -> itemStockShardRepository.findAll(itemId).stream()
+                .map(ItemStockShard::getQuantity)
+                .collect(toList()));
+    }
+
+    /**
+     * 전체 재고 = item.stock_quantity + shard 수량 합계 (shard를 쓰지 않는 상품은 조회 없이 stock_quantity)
+     */
+    public int getTotalStock(Item item) {
+        if (item.getStockShards() == 0) {
+            return item.getStockQuantity();
+        }
+        return item.getStockQuantity() + itemStockShardRepository.sumQuantity(item.getId());
+    }
+
+    /**
+     * 상품별 전체 재고, shard 합계는 IN 조회 1번 (shard를 쓰는 상품만)
+     */
+    public Map<Long, Integer> getTotalStocks(List<Item> items) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        List<Long> shardedItemIds = new ArrayList<>();
+        for (Item item : items) {
+            stocks.put(item.getId(), item.getStockQuantity());
+            if (item.getStockShards() > 0) {
+                shardedItemIds.add(item.getId());
+            }
+        }
+        if (!shardedItemIds.isEmpty()) {
+            for (Object[] row : itemStockShardRepository.sumQuantities(shardedItemIds)) {
+                stocks.merge((Long) row[0], ((Long) row[1]).intValue(), Integer::sum);
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 상품 재고 수정, shard를 모두 잡고 새 재고로 다시 나눔 (상품 수정 트랜잭션 안에서 호출)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void replaceStock(Item item, int stockQuantity) {
+        List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(item.getId());
+        itemRepository.refreshForUpdate(item);
+        distribute(item, shards, stockQuantity);
+    }
+
+    /**
+     * shard를 쓰는 모든 상품 재분배
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.shard.rebalance-interval-millis:1000}",
+            initialDelayString = "${jpashop.stock.shard.rebalance-interval-millis:1000}")
+    public void rebalanceAll() {
+        List<Long> itemIds;
+        try {
+            itemIds = transactionTemplate.execute(status -> itemRepository.findStockShardedItemIds());
+        } catch (RuntimeException e) {
+            log.warn("stock shard rebalance failed", e);
+            return;
+        }
+        for (Long itemId : itemIds) {
+            try {
+                rebalance(itemId);
+            } catch (RuntimeException e) {
+                log.warn("stock shard rebalance failed: item={}", itemId, e);
+            }
+        }
+    }
+
+    /**
+     * 상품 하나 재분배, 옮겼으면 true
+     */
+    public boolean rebalance(Long itemId) {
+        return transactionTemplate.execute(status -> {
+            List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(itemId);
+            if (shards.isEmpty()) {
+                return false;
+            }
+            Item item = itemRepository.findOneForUpdate(itemId);
+            if (!isUnbalanced(item, shards)) {
+                return false;
+            }
+            distribute(item, shards, item.getStockQuantity() + sum(shards));
+            return true;
+        });
+    }
+
+    //shard 수량을 item.stock_quantity로 합치고 shard 삭제, 잠근 상품 반환
+    private Item collapse(Long itemId) {
+        List<ItemStockShard> shards = itemStockShardRepository.findAllForUpdate(itemId);
+        Item item = itemRepository.findOneForUpdate(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("상품이 없습니다: " + itemId);
+        }
+        if (!shards.isEmpty()) {
+            int total = item.getStockQuantity() + sum(shards);
+            itemStockShardRepository.deleteAll(itemId);
+            item.setStockQuantity(total);
+        }
+        return item;
+    }
+
+    private static boolean isUnbalanced(Item item, List<ItemStockShard> shards) {
+        int unsharded = item.getStockQuantity();
+        int total = unsharded + sum(shards);
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (ItemStockShard shard : shards) {
+            min = Math.min(min, shard.getQuantity());
+            max = Math.max(max, shard.getQuantity());
+        }
+        return unsharded > 0 || max - min > Math.max(1, total / shards.size() / 4);
+    }
+
+    private static int sum(List<ItemStockShard> shards) {
+        return shards.stream().mapToInt(ItemStockShard::getQuantity).sum();
+    }
+
+    //quantity를 shard에 고르게 나누고 item.stock_quantity는 0
+    private static void distribute(Item item, List<ItemStockShard> shards, int quantity) {
+        int each = quantity / shards.size();
+        int extra = quantity % shards.size();
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).setQuantity(each + (i < extra ? 1 : 0));
+        }
+        item.setStockQuantity(0);
+    }
+}
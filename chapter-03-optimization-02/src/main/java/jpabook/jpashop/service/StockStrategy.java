@@ -0,0 +1,11 @@
+package jpabook.jpashop.service;
+
+/**
+ * 주문시 재고 차감 방식 (동시 주문 lost update 방지)
+ * - ATOMIC_UPDATE: 조건부 update 1번 (stock_quantity >= 수량일 때만 차감), 락 대기가 row update 1번으로 짧다.
+ * - OPTIMISTIC: @Version 충돌시 트랜잭션을 새로 시작해서 재시도 (횟수 제한, jitter)
+ * - PESSIMISTIC_WRITE: select ... for update로 row 락 후 차감, 같은 상품 주문은 순서대로 처리
+ */
+public enum StockStrategy {
+    ATOMIC_UPDATE, OPTIMISTIC, PESSIMISTIC_WRITE
+}
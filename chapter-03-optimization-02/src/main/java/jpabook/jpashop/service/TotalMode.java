@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+
+import java.util.Locale;
+
+/**
+ * 페이징 응답 total 계산 방식
+ * - EXACT: count 쿼리 (fetch join 없이)
+ * - CACHED: 주문 생성시 갱신되는 메모리 카운터
+ * - ESTIMATE: DB 테이블 통계 (추정치)
+ */
+public enum TotalMode {
+    EXACT, CACHED, ESTIMATE;
+
+    /**
+     * total 파라미터가 없으면 null (total 계산 안함)
+     */
+    public static TotalMode parse(String total) {
+        if (total == null || total.isEmpty()) {
+            return null;
+        }
+        try {
+            return valueOf(total.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestParameterException("total은 exact, cached, estimate 중 하나여야 합니다: " + total, e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package jpabook.jpashop.service.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 계층형 타이밍 휠 (hierarchical timing wheel)
+ * - tick 단위 시간을 wheelSize(2의 거듭제곱)진수 자릿수로 보고, 자릿수마다 휠(level) 하나
+ *   level 0은 다음 wheelSize tick, level 1은 다음 wheelSize^2 tick ... 을 담는다.
+ * - 등록: 현재 tick과 만료 tick이 처음으로 달라지는 자릿수의 휠, 그 자릿수 칸에 넣는다. O(1)
+ * - 취소: 칸의 이중 연결 리스트에서 빼낸다. O(1)
+ * - 진행: tick마다 아래 자릿수가 모두 0이 된 상위 휠의 칸을 아래 휠로 내리고(cascade), level 0 칸을 만료
+ *   항목마다 최대 levels번 옮겨지므로 만료도 항목당 O(1)
+ * - 동시 호출은 synchronized (등록/취소/진행 모두 짧은 상수 시간)
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final Bucket<T>[][] wheels;
+    private final long maxTicks;
+
+    private long currentTick;
+    private int size;
+    //등록할 때 이미 만료된 항목, 다음 advance에서 반환
+    private final Bucket<T> expired = new Bucket<>();
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1 || levels < 1) {
+            throw new IllegalArgumentException("tickMillis > 0, wheelSize는 2의 거듭제곱, levels >= 1");
+        }
+        if ((long) Integer.numberOfTrailingZeros(wheelSize) * levels >= 62) {
+            throw new IllegalArgumentException("wheelSize^levels가 너무 큽니다.");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.wheels = new Bucket[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheels[level][i] = new Bucket<>();
+            }
+        }
+        this.maxTicks = (1L << (bits * levels)) - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * deadlineMillis에 만료되도록 등록 (tick 단위로 올림 -> 만료 시간 전에 꺼내지 않는다, 최대 범위를 넘으면 범위 끝으로)
+     */
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        long deadlineTick = Math.min(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + maxTicks);
+        Timeout<T> timeout = new Timeout<>(this, value, deadlineTick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * nowMillis까지 진행하고 만료된 항목 반환
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> result = new ArrayList<>();
+        expired.drainTo(result);
+        long nowTick = nowMillis / tickMillis;
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = wheels.length - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(wheels[level][digit(currentTick, level)]);
+                }
+            }
+            wheels[0][digit(currentTick, 0)].drainTo(result);
+            //이번 tick에 만료되는 항목이 상위 휠에서 내려온 경우
+            expired.drainTo(result);
+        }
+        size -= result.size();
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long deadlineTick = timeout.deadlineTick;
+        if (deadlineTick <= currentTick) {
+            expired.add(timeout);
+            return;
+        }
+        //현재 tick과 만료 tick이 처음으로 다른 자릿수 (위 자릿수는 같다)
+        //최상위 휠 범위를 넘어 자리올림된 경우도 최상위 휠 (남은 tick이 maxTicks 이하라 먼저 돌아오지 않는다)
+        int level = Math.min((63 - Long.numberOfLeadingZeros(deadlineTick ^ currentTick)) / bits, wheels.length - 1);
+        wheels[level][digit(deadlineTick, level)].add(timeout);
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        Timeout<T> timeout = bucket.head;
+        bucket.clear();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private int digit(long tick, int level) {
+        return (int) ((tick >>> (bits * level)) & mask);
+    }
+
+    /**
+     * 등록된 항목, cancel()로 취소
+     */
+    public static final class Timeout<T> {
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T value;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, T value, long deadlineTick) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * 아직 만료되지 않았으면 빼내고 true
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    /**
+     * 휠의 칸, 이중 연결 리스트
+     */
+    private static final class Bucket<T> {
+
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void drainTo(List<T> result) {
+            Timeout<T> timeout = head;
+            clear();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = null;
+                result.add(timeout.value);
+                timeout = next;
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+}
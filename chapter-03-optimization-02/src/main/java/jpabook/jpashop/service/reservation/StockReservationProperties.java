@@ -0,0 +1,23 @@
+package jpabook.jpashop.service.reservation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 장바구니 재고 예약 설정
+ * - tick-millis, wheel-size, levels: 타이밍 휠 크기, 최대 만료 범위 = tick-millis * wheel-size^levels
+ * - expire-batch-size: 만료된 예약을 재고에 돌려줄 때 트랜잭션 1번에 처리할 예약 수
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.stock.reservation")
+@Getter @Setter
+public class StockReservationProperties {
+
+    private long ttlSeconds = 600;
+    private long tickMillis = 100;
+    private int wheelSize = 256;
+    private int levels = 4;
+    private int expireBatchSize = 1000;
+}
@@ -0,0 +1,244 @@
+package jpabook.jpashop.service.reservation;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.StockReservationNotAllowedException;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.StockLedger;
+import jpabook.jpashop.service.StockManager;
+import jpabook.jpashop.service.StockStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 장바구니 재고 예약
+ * - 예약: StockManager로 재고를 조건부 update 차감하고 stock_reservation 저장, 커밋 후 타이밍 휠에 만료 등록
+ * - 확정: 예약을 주문(주문상품)으로 바꾸고 삭제, 재고는 이미 차감했으므로 그대로
+ * - 해제/만료: 재고를 돌려주고 삭제, 만료는 휠에서 꺼낸 예약을 expire-batch-size씩 모아서 상품별 update 1번
+ *   재고 shard를 쓰는 상품은 shard에 돌려준다. (StockManager.addStock)
+ * - 만료 시간은 메모리 휠만 보고 DB를 주기적으로 조회하지 않는다. 기동시 stock_reservation으로 휠 복구
+ * - 확정/해제/만료는 예약 row를 select ... for update로 잡으므로 같은 예약을 두 번 처리하지 않는다.
+ * - 재고 장부(StockLedger)를 쓰는 상품은 예약할 수 없다. (장부를 나중에 켠 경우 돌려준 수량은 장부에도 반영)
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private static final int RECOVER_BATCH_SIZE = 10000;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final StockReservationRepository reservationRepository;
+    private final MemberRepository memberRepository;
+    private final StockManager stockManager;
+    private final OrderService orderService;
+    private final StockLedger stockLedger;
+    private final StockReservationProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final HierarchicalTimingWheel<Long> wheel;
+    //예약 id -> 휠 등록 (확정/해제시 휠에서 빼기)
+    private final Map<Long, HierarchicalTimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+
+    public StockReservationService(StockReservationRepository reservationRepository, MemberRepository memberRepository,
+                                   StockManager stockManager, OrderService orderService, StockLedger stockLedger,
+                                   StockReservationProperties properties, TransactionTemplate transactionTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.memberRepository = memberRepository;
+        this.stockManager = stockManager;
+        this.orderService = orderService;
+        this.stockLedger = stockLedger;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.wheel = new HierarchicalTimingWheel<>(properties.getTickMillis(), properties.getWheelSize(),
+                properties.getLevels(), System.currentTimeMillis());
+    }
+
+    /**
+     * 재고 예약, ttl-seconds 뒤 만료
+     * - 재고 장부를 쓰는 상품이면 StockReservationNotAllowedException
+     */
+    public StockReservation reserve(Long memberId, Long itemId, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("예약 수량은 1 이상이어야 합니다.");
+        }
+        if (stockLedger.isManaged(itemId)) {
+            throw new StockReservationNotAllowedException("재고 장부를 쓰는 상품은 예약할 수 없습니다: " + itemId);
+        }
+        return transactionTemplate.execute(status -> {
+            Member member = memberRepository.findOne(memberId);
+            if (member == null) {
+                throw new IllegalArgumentException("회원이 없습니다: " + memberId);
+            }
+            //조건부 update로 차감 (재고 shard를 쓰는 상품은 shard에서)
+            Item item = stockManager.removeStock(itemId, count, StockStrategy.ATOMIC_UPDATE);
+
+            long expiresAtMillis = System.currentTimeMillis() + properties.getTtlSeconds() * 1000;
+            StockReservation reservation = StockReservation.createStockReservation(member, item, count, toLocalDateTime(expiresAtMillis));
+            reservationRepository.save(reservation);
+
+            //롤백되면 휠에 남지 않게 커밋 후 등록
+            Long reservationId = reservation.getId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    timeouts.put(reservationId, wheel.schedule(reservationId, expiresAtMillis));
+                }
+            });
+            return reservation;
+        });
+    }
+
+    /**
+     * 예약 확정, 생성한 주문 id
+     * - 이미 확정/해제/만료된 예약이거나 만료 시간이 지났으면 IllegalStateException
+     */
+    public Long confirm(Long reservationId) {
+        return transactionTemplate.execute(status -> {
+            StockReservation reservation = reservationRepository.findOneForUpdate(reservationId);
+            if (reservation == null || reservation.isExpired(LocalDateTime.now())) {
+                //만료 시간이 지난 예약은 휠이 돌려준다.
+                throw new IllegalStateException("예약이 없거나 만료되었습니다: " + reservationId);
+            }
+            Long orderId = orderService.orderReserved(reservation.getMember(), reservation.getItem(), reservation.getCount());
+            reservationRepository.delete(reservation);
+            cancelAfterCommit(reservationId);
+            return orderId;
+        });
+    }
+
+    /**
+     * 예약 해제 (재고 반환), 이미 확정/해제/만료된 예약이면 false
+     */
+    public boolean release(Long reservationId) {
+        return transactionTemplate.execute(status -> {
+            StockReservation reservation = reservationRepository.findOneForUpdate(reservationId);
+            if (reservation == null) {
+                return false;
+            }
+            Long itemId = reservation.getItem().getId();
+            reservationRepository.delete(reservation);
+            stockManager.addStock(itemId, reservation.getCount());
+            stockLedger.adjustAfterCommit(itemId, reservation.getCount());
+            cancelAfterCommit(reservationId);
+            return true;
+        });
+    }
+
+    /**
+     * 만료되지 않은 예약 수 (이 인스턴스의 휠 기준)
+     */
+    public int getOutstanding() {
+        return wheel.size();
+    }
+
+    /**
+     * 휠을 현재 시간까지 진행하고 만료된 예약을 재고에 반환
+     * - 실패한 묶음은 RETRY_DELAY_MILLIS 뒤 다시 시도
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.reservation.tick-millis:100}")
+    public void expire() {
+        long now = System.currentTimeMillis();
+        List<Long> expired = wheel.advance(now);
+        int batchSize = properties.getExpireBatchSize();
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> ids = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            ids.forEach(timeouts::remove);
+            try {
+                expire(ids);
+            } catch (RuntimeException e) {
+                log.warn("stock reservation expire failed: {} reservations", ids.size(), e);
+                for (Long id : ids) {
+                    timeouts.put(id, wheel.schedule(id, now + RETRY_DELAY_MILLIS));
+                }
+            }
+        }
+    }
+
+    /**
+     * 예약 묶음 만료, 만료 처리한 예약 수
+     * - 그 사이 확정/해제된 예약은 조회되지 않으므로 건너뛴다.
+     * - 상품별로 수량을 모아서 item_id 순으로 update (동시에 도는 묶음끼리 락 순서가 같다.)
+     */
+    public int expire(List<Long> reservationIds) {
+        return transactionTemplate.execute(status -> {
+            List<StockReservation> reservations = reservationRepository.findAllForUpdate(reservationIds);
+            if (reservations.isEmpty()) {
+                return 0;
+            }
+            List<Long> ids = new ArrayList<>(reservations.size());
+            Map<Long, Integer> quantities = new TreeMap<>();
+            for (StockReservation reservation : reservations) {
+                ids.add(reservation.getId());
+                quantities.merge(reservation.getItem().getId(), reservation.getCount(), Integer::sum);
+            }
+            reservationRepository.deleteAll(ids);
+            quantities.forEach((itemId, quantity) -> {
+                stockManager.addStock(itemId, quantity);
+                stockLedger.adjustAfterCommit(itemId, quantity);
+            });
+            return ids.size();
+        });
+    }
+
+    /**
+     * 기동시 남아 있는 예약을 휠에 다시 등록 (이미 지난 예약은 다음 expire에서 만료)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Long lastId = 0L;
+        int recovered = 0;
+        while (true) {
+            Long from = lastId;
+            List<Object[]> rows = transactionTemplate.execute(status -> reservationRepository.findAllExpiries(from, RECOVER_BATCH_SIZE));
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                long expiresAtMillis = toMillis((LocalDateTime) row[1]);
+                timeouts.computeIfAbsent(id, key -> wheel.schedule(key, expiresAtMillis));
+            }
+            recovered += rows.size();
+            if (rows.size() < RECOVER_BATCH_SIZE) {
+                break;
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        log.info("stock reservations recovered: {}", recovered);
+    }
+
+    private void cancelAfterCommit(Long reservationId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                HierarchicalTimingWheel.Timeout<Long> timeout = timeouts.remove(reservationId);
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+            }
+        });
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,70 @@
+package jpabook.jpashop;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+
+/**
+ * 커밋된 데이터를 보는 테스트 (테스트 트랜잭션 없이 실행)
+ * - 서비스가 트랜잭션을 직접 나누거나 커밋된 row만 보는 경우 (재고 장부 반영, 예약 만료, shard 재분배, chunk 커밋 등)
+ * - 데이터는 transactionTemplate으로 커밋해서 준비/확인하고 지우지 않으므로 테스트마다 새 회원/상품을 만든다.
+ * - 설정은 committed 프로필(application-committed.yml)에 모아서 하위 클래스 모두 스프링 컨텍스트 하나를 같이 쓴다.
+ */
+@ActiveProfiles(value = {"test", "committed"})
+@SpringBootTest
+public abstract class CommittedDataTestSupport {
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    protected EntityManager em;
+
+    protected Long memberId;
+
+    @BeforeEach
+    void 회원_세팅() {
+        memberId = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("테스트회원");
+            member.setAddress(new Address("서울", "경기", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    /**
+     * 가격 10000원 책 저장
+     */
+    protected Long book(String name, int stockQuantity) {
+        return transactionTemplate.execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(10000);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    /**
+     * 커밋된 재고 (shard를 쓰는 상품은 shard 합계 포함)
+     */
+    protected int stock(Long itemId) {
+        return transactionTemplate.execute(status -> em.find(Item.class, itemId).getStockQuantity()
+                + em.createQuery("select coalesce(sum(s.quantity), 0) from ItemStockShard s where s.item.id = :itemId", Long.class)
+                        .setParameter("itemId", itemId)
+                        .getSingleResult()
+                        .intValue());
+    }
+}
@@ -0,0 +1,79 @@
+package jpabook.jpashop.domain.id;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+
+/**
+ * id 생성 방식(IdStrategy)별 insert 처리량 (H2, hibernate.jdbc.batch_size 적용)
+ * - 방식마다 SessionFactory가 달라야 하므로 하위 클래스마다 스프링 컨텍스트 1개
+ * - 회원 + 배송 ROWS개씩을 BATCH개마다 flush/clear, 커밋
+ */
+@Tag("benchmark")
+@ActiveProfiles(value = {"test"})
+abstract class IdGenerationBenchmark {
+
+    private static final int ROWS = 50000;
+    private static final int BATCH = 1000;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    void insert_처리량() {
+        insert(BATCH); //워밍업
+
+        long begin = System.nanoTime();
+        for (int done = 0; done < ROWS; done += BATCH) {
+            insert(BATCH);
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        System.out.println(String.format("%-10s %12.0f rows/s (member + delivery %d개씩)",
+                getClass().getSimpleName(), ROWS * 2 / seconds, ROWS));
+    }
+
+    private void insert(int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < count; i++) {
+                Member member = new Member();
+                member.setName("id벤치마크" + i);
+                member.setAddress(new Address("서울", "1", "1111"));
+                em.persist(member);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                delivery.setStatus(DeliveryStatus.READY);
+                em.persist(delivery);
+            }
+            em.flush();
+            em.clear();
+        });
+    }
+
+    @SpringBootTest(properties = "spring.jpa.properties.jpashop.id.strategy.default=sequence")
+    static class Sequence extends IdGenerationBenchmark {
+    }
+
+    @SpringBootTest(properties = "spring.jpa.properties.jpashop.id.strategy.default=pooled-lo")
+    static class PooledLo extends IdGenerationBenchmark {
+    }
+
+    @SpringBootTest(properties = {"spring.jpa.properties.jpashop.id.strategy.default=snowflake",
+            "spring.jpa.properties.jpashop.id.snowflake.node_id=1"})
+    static class Snowflake extends IdGenerationBenchmark {
+    }
+}
@@ -0,0 +1,45 @@
+package jpabook.jpashop.domain.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.LongType;
+import org.junit.jupiter.api.Test;
+
+public class JpashopIdGeneratorTest {
+
+    @Test
+    void snowflake_노드_번호_필수() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(JpashopIdGenerator.DEFAULT_STRATEGY, "snowflake");
+
+        //node_id가 없으면 모든 인스턴스가 0번으로 같은 id를 발급하므로 기동 실패
+        assertThrows(MappingException.class, () -> configure(settings));
+
+        settings.put(JpashopIdGenerator.NODE_ID, "3");
+        assertEquals(IdStrategy.SNOWFLAKE, configure(settings).getStrategy());
+    }
+
+    private static JpashopIdGenerator configure(Map<String, Object> settings) {
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.getSettings()).thenReturn(settings);
+        ServiceRegistry serviceRegistry = mock(ServiceRegistry.class);
+        when(serviceRegistry.getService(ConfigurationService.class)).thenReturn(configurationService);
+
+        Properties params = new Properties();
+        params.setProperty(IdentifierGenerator.ENTITY_NAME, "jpabook.jpashop.domain.Order");
+        JpashopIdGenerator generator = new JpashopIdGenerator();
+        generator.configure(LongType.INSTANCE, params, serviceRegistry);
+        return generator;
+    }
+}
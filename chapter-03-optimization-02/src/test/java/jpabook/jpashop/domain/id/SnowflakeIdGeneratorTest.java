@@ -0,0 +1,82 @@
+package jpabook.jpashop.domain.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    void 시간_노드_순번() {
+        long now = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> now);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(first + 1, second); //같은 밀리초면 순번만 증가
+        assertEquals(5, SnowflakeIdGenerator.nodeIdOf(first));
+        assertEquals(Instant.ofEpochMilli(now), SnowflakeIdGenerator.timestampOf(first));
+        assertTrue(first > 0);
+    }
+
+    @Test
+    void 순번이_넘치거나_시계가_뒤로_가도_증가() {
+        AtomicLong clock = new AtomicLong(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        long last = 0;
+        for (int i = 0; i < 10000; i++) { //밀리초당 4096개를 넘김
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        clock.addAndGet(-1000);
+        assertTrue(generator.nextId() > last);
+    }
+
+    @Test
+    void 노드가_다르면_겹치지_않는다() throws Exception {
+        long now = System.currentTimeMillis();
+        SnowflakeIdGenerator node0 = new SnowflakeIdGenerator(0, () -> now);
+        SnowflakeIdGenerator node1 = new SnowflakeIdGenerator(1, () -> now);
+        assertNotEquals(node0.nextId(), node1.nextId());
+
+        //여러 스레드에서 동시에 발급해도 중복 없음
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            SnowflakeIdGenerator generator = t % 2 == 0 ? node0 : node1;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(80000, ids.size());
+    }
+
+    @Test
+    void 노드_번호_범위() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    }
+}
@@ -0,0 +1,117 @@
+package jpabook.jpashop.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletionException;
+
+import javax.servlet.FilterChain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.exception.StatementBudgetExceededException;
+
+public class StatementBudgetFilterTest {
+
+    StatementCounter counter = new StatementCounter();
+    StatementBudgetProperties properties = new StatementBudgetProperties();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StatementBudgetFilter filter = new StatementBudgetFilter(counter, properties, meterRegistry);
+
+    @Test
+    void 먼저_선언한_패턴의_예산을_쓴다() throws Exception {
+        properties.getBudgets().put("/api/orders/batch", 3);
+        properties.getBudgets().put("/api/**", 1);
+        properties.setMode(StatementBudgetMode.METRIC);
+
+        //when
+        filter.doFilter(request("/api/orders/batch"), new MockHttpServletResponse(), statements(2));
+        filter.doFilter(request("/api/orders"), new MockHttpServletResponse(), statements(2));
+
+        //then
+        assertEquals(2, meterRegistry.get("jpashop.sql.statements").tag("pattern", "/api/orders/batch").summary().totalAmount());
+        assertNull(meterRegistry.find("jpashop.sql.statement_budget.violations").tag("pattern", "/api/orders/batch").counter());
+        assertEquals(1, meterRegistry.get("jpashop.sql.statement_budget.violations")
+                .tag("pattern", "/api/**").tag("mode", "METRIC").counter().count());
+    }
+
+    @Test
+    void 패턴에_없는_요청은_세지_않는다() throws Exception {
+        properties.getBudgets().put("/api/**", 1);
+
+        filter.doFilter(request("/members"), new MockHttpServletResponse(), statements(5));
+
+        assertNull(meterRegistry.find("jpashop.sql.statements").summary());
+    }
+
+    @Test
+    void 꺼져_있으면_세지_않는다() throws Exception {
+        properties.getBudgets().put("/api/**", 1);
+        properties.setEnabled(false);
+
+        filter.doFilter(request("/api/orders"), new MockHttpServletResponse(), statements(5));
+
+        assertNull(meterRegistry.find("jpashop.sql.statements").summary());
+    }
+
+    @Test
+    void REJECT_모드는_요청을_실패시키고_500으로_응답한다() throws Exception {
+        properties.getBudgets().put("/api/**", 1);
+        properties.setMode(StatementBudgetMode.REJECT);
+
+        //when
+        StatementBudgetExceededException e = assertThrows(StatementBudgetExceededException.class,
+                () -> filter.doFilter(request("/api/orders"), new MockHttpServletResponse(), statements(2)));
+
+        //then
+        //요청 스레드 카운터는 정리되고 위반은 메트릭에 남는다.
+        assertNull(counter.end());
+        assertEquals(1, meterRegistry.get("jpashop.sql.statement_budget.violations")
+                .tag("mode", "REJECT").counter().count());
+
+        //작업 스레드에서 던져져 감싸진 경우도 500
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(new ResponseStatusExceptionResolver()
+                .resolveException(request("/api/orders"), response, null, new CompletionException(e)));
+        assertEquals(500, response.getStatus());
+    }
+
+    @Test
+    void REJECT_모드도_응답을_보내기_시작했으면_거절하지_않는다() throws Exception {
+        properties.getBudgets().put("/api/**", 1);
+        properties.setMode(StatementBudgetMode.REJECT);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        //본문 일부를 보낸 뒤(커밋) 예산을 넘기면 상태 코드를 바꿀 수 없다.
+        filter.doFilter(request("/api/orders"), response, (req, res) -> {
+            counter.inspect("select 0");
+            res.flushBuffer();
+            counter.inspect("select 1");
+        });
+
+        //then
+        assertEquals(200, response.getStatus());
+        assertEquals(1, meterRegistry.get("jpashop.sql.statement_budget.violations")
+                .tag("mode", "REJECT").counter().count());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    //요청 처리 중 SQL count번 실행
+    private FilterChain statements(int count) {
+        return (request, response) -> {
+            for (int i = 0; i < count; i++) {
+                counter.inspect("select " + i);
+            }
+        };
+    }
+}
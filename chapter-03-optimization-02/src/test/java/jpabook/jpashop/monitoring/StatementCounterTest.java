@@ -0,0 +1,83 @@
+package jpabook.jpashop.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jpabook.jpashop.exception.StatementBudgetExceededException;
+
+public class StatementCounterTest {
+
+    StatementCounter counter = new StatementCounter();
+
+    @AfterEach
+    void 정리() {
+        counter.end();
+    }
+
+    @Test
+    void 요청_밖의_SQL은_세지_않는다() {
+        assertEquals("select 1", counter.inspect("select 1"));
+        assertNull(counter.end());
+    }
+
+    @Test
+    void 예산까지는_초과가_아니다() {
+        counter.begin("/api/**", 2, StatementBudgetMode.METRIC, null);
+        counter.inspect("select 1");
+        counter.inspect("select 2");
+
+        StatementCounter.RequestStatements statements = counter.end();
+        assertEquals(2, statements.getCount());
+        assertFalse(statements.isExceeded());
+    }
+
+    @Test
+    void LOG_모드는_예산을_넘어도_SQL을_실행한다() {
+        counter.begin("/api/**", 1, StatementBudgetMode.LOG, null);
+        counter.inspect("select 1");
+        assertEquals("select 2", counter.inspect("select 2"));
+
+        StatementCounter.RequestStatements statements = counter.end();
+        assertEquals(2, statements.getCount());
+        assertTrue(statements.isExceeded());
+    }
+
+    @Test
+    void REJECT_모드는_예산을_넘는_SQL에서_예외() {
+        counter.begin("/api/**", 1, StatementBudgetMode.REJECT, null);
+        counter.inspect("select 1");
+
+        assertThrows(StatementBudgetExceededException.class, () -> counter.inspect("select 2"));
+        assertTrue(counter.end().isExceeded());
+    }
+
+    @Test
+    void propagate한_작업_스레드의_SQL도_요청에_포함() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            counter.begin("/api/**", 10, StatementBudgetMode.METRIC, null);
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                    counter.propagate(() -> counter.inspect("select 1")), executor);
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                    counter.propagate(() -> counter.inspect("select 2")), executor);
+            first.join();
+            second.join();
+            //감싸지 않은 작업은 세지 않는다.
+            CompletableFuture.runAsync(() -> counter.inspect("select 3"), executor).join();
+
+            assertEquals(2, counter.end().getCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
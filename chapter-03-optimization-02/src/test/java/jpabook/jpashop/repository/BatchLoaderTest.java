@@ -0,0 +1,65 @@
+package jpabook.jpashop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchLoaderTest {
+
+    List<List<Long>> batches = new ArrayList<>();
+
+    //짝수 키만 결과가 있는 batch 함수
+    BatchLoader<Long, String> loader = new BatchLoader<>(keys -> {
+        batches.add(keys);
+        return keys.stream()
+                .filter(k -> k % 2 == 0)
+                .collect(Collectors.toMap(Function.identity(), k -> "v" + k));
+    }, "none");
+
+    @Test
+    void 모아서_한번에_조회() {
+        CompletableFuture<String> f1 = loader.load(1L);
+        CompletableFuture<String> f2 = loader.load(2L);
+        loader.load(2L);
+        assertFalse(f1.isDone());
+
+        //when
+        loader.dispatch();
+
+        //then
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L)), batches);
+        assertEquals("none", f1.join());
+        assertEquals("v2", f2.join());
+    }
+
+    @Test
+    void 조회한_키는_다시_조회하지_않는다() {
+        loader.load(2L);
+        assertEquals("v4", loader.get(4L));
+
+        //when
+        String cached = loader.get(2L);
+        loader.dispatch();
+
+        //then
+        assertEquals("v2", cached);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void 요청_밖에서는_매번_새_loader() {
+        BatchLoaders batchLoaders = new BatchLoaders();
+        Function<List<Long>, Map<Long, String>> batchFunction = keys -> null;
+
+        assertFalse(batchLoaders.get("test", batchFunction, "") == batchLoaders.get("test", batchFunction, ""));
+    }
+}
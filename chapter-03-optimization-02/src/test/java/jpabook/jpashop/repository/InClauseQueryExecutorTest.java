@@ -0,0 +1,34 @@
+package jpabook.jpashop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class InClauseQueryExecutorTest {
+
+    @Test
+    void chunk_분할_패딩() {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L);
+
+        //when
+        List<List<Long>> chunks = InClauseQueryExecutor.split(ids, 8);
+
+        //then
+        assertEquals(2, chunks.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), chunks.get(0));
+        //3개 -> 2의 거듭제곱(4)으로 마지막 값을 반복해서 채운다.
+        assertEquals(Arrays.asList(9L, 10L, 11L, 11L), chunks.get(1));
+    }
+
+    @Test
+    void 패딩은_chunkSize를_넘지_않는다() {
+        List<List<Long>> chunks = InClauseQueryExecutor.split(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L), 6);
+
+        assertEquals(6, chunks.get(0).size());
+        assertEquals(Collections.singletonList(7L), chunks.get(1));
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jpabook.jpashop.event.MemberChangedEvent;
+
+public class MemberNameIndexTest {
+
+    MemberNameIndex index = new MemberNameIndex(null);
+
+    @BeforeEach
+    void 회원_세팅() {
+        index.onMemberChanged(new MemberChangedEvent(1L, "spring kim", false));
+        index.onMemberChanged(new MemberChangedEvent(2L, "jpa kim", false));
+        index.onMemberChanged(new MemberChangedEvent(3L, "spring lee", false));
+    }
+
+    @Test
+    void 부분_문자열_검색() {
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L)), index.findMemberIds("ring"));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), index.findMemberIds(" kim"));
+        //3글자 미만은 이름 목록을 훑는다.
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), index.findMemberIds("ki"));
+        //trigram(spr, kim)이 모두 있어도 이어지지 않으면 제외
+        assertTrue(index.findMemberIds("spr kim").isEmpty());
+    }
+
+    @Test
+    void 이름_변경_삭제() {
+        //when
+        index.onMemberChanged(new MemberChangedEvent(1L, "boot park", false));
+        index.onMemberChanged(new MemberChangedEvent(3L, "spring lee", true));
+
+        //then
+        assertTrue(index.findMemberIds("spring").isEmpty());
+        assertEquals(Collections.singleton(1L), index.findMemberIds("park"));
+    }
+}
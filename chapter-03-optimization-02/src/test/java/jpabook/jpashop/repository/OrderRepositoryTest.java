@@ -0,0 +1,275 @@
+package jpabook.jpashop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.item.Book;
+
+@ActiveProfiles(value = {"test"})
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    Long memberId;
+
+    @BeforeEach
+    void 주문_세팅() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+        memberId = member.getId();
+
+        Book book = new Book();
+        book.setName("새 책");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        for (int i = 0; i < 7; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 10000, 1));
+            em.persist(order);
+            em.persist(OrderSummary.createOrderSummary(order));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void 키셋_페이징() {
+        List<Long> expected = orderRepository.findAllWithMemberDelivery().stream()
+                .map(Order::getId)
+                .sorted()
+                .collect(Collectors.toList());
+
+        //when
+        List<Long> paged = new ArrayList<>();
+        OrderCursor cursor = OrderCursor.first();
+        while (true) {
+            List<Order> page = orderRepository.findAllWithMemberDelivery(cursor, 3);
+            assertTrue(page.size() <= 3);
+            page.forEach(o -> paged.add(o.getId()));
+            if (page.size() < 3) {
+                break;
+            }
+            cursor = OrderCursor.decode(OrderCursor.after(page.get(page.size() - 1).getId()).encode());
+        }
+
+        //then
+        //모든 주문을 중복/누락 없이 order_id 순서로 조회해야 한다.
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void 전체_건수() {
+        //fetch join 없는 count는 목록 조회 결과 수와 같아야 한다.
+        assertEquals(orderRepository.findAllWithMemberDelivery().size(), orderRepository.count());
+        assertTrue(orderRepository.estimateCount() >= 0);
+    }
+
+    @Test
+    void fetch_plan() {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        //when
+        List<Order> summary = orderRepository.findAll(OrderGraph.SUMMARY, OrderCursor.first(), 3);
+        em.clear();
+        List<Order> full = orderRepository.findAll(OrderGraph.FULL);
+
+        //then
+        assertEquals(3, summary.size());
+        assertTrue(util.isLoaded(summary.get(0), "member"));
+        assertFalse(util.isLoaded(summary.get(0), "orderItems"));
+
+        //컬렉션을 fetch해도 주문은 중복되지 않는다.
+        assertEquals(orderRepository.count(), full.size());
+        assertEquals(full.size(), full.stream().map(Order::getId).distinct().count());
+        assertTrue(util.isLoaded(full.get(0), "orderItems"));
+        assertTrue(util.isLoaded(full.get(0).getOrderItems().get(0), "item"));
+    }
+
+    @Test
+    void 컬렉션_fetch_plan_2단계_페이징() {
+        List<Long> expected = orderRepository.findAll().stream()
+                .map(Order::getId)
+                .sorted(Comparator.reverseOrder())
+                .skip(2)
+                .limit(3)
+                .collect(Collectors.toList());
+        em.clear();
+
+        //when
+        List<Order> page = orderRepository.findAll(OrderGraph.FULL, OrderSort.ID_DESC, 2, 3);
+
+        //then
+        //1단계에서 페이징한 순서가 유지되고 컬렉션까지 로딩되어 있어야 한다.
+        assertEquals(expected, page.stream().map(Order::getId).collect(Collectors.toList()));
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        page.forEach(o -> assertTrue(util.isLoaded(o, "orderItems")));
+    }
+
+    @Test
+    void 주문_검색_키셋_페이징() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberId(memberId);
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        orderSearch.setOrderDateFrom(LocalDateTime.now().minusDays(1));
+        orderSearch.setMinTotal(10000);
+
+        //when
+        List<Order> paged = new ArrayList<>();
+        OrderSearchCursor cursor = OrderSearchCursor.first();
+        while (true) {
+            List<Order> page = orderRepository.findAllBySearch(orderSearch, cursor, 3);
+            paged.addAll(page);
+            if (page.size() < 3) {
+                break;
+            }
+            Order last = page.get(page.size() - 1);
+            cursor = OrderSearchCursor.decode(OrderSearchCursor.after(last.getOrderDate(), last.getId()).encode());
+        }
+
+        //then
+        //같은 주문시간이 있어도 중복/누락 없이 (주문시간, 주문번호) 순서로 모두 조회해야 한다.
+        assertEquals(7, paged.size());
+        List<Order> sorted = new ArrayList<>(paged);
+        sorted.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId));
+        assertEquals(sorted, paged);
+        assertEquals(7, paged.stream().map(Order::getId).distinct().count());
+
+        orderSearch.setMaxTotal(9999);
+        assertTrue(orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.first(), 3).isEmpty());
+    }
+
+    @Test
+    void 주문_검색_요약_없는_주문() {
+        Member member = em.find(Member.class, memberId);
+        Book book = new Book();
+        book.setName("요약 없는 책");
+        book.setPrice(30000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 30000, 2));
+        em.persist(order);
+        em.flush();
+        em.clear();
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberId(memberId);
+        orderSearch.setMinTotal(50000);
+
+        //when
+        List<Order> found = orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.first(), 10);
+
+        //then
+        //요약이 없으면 주문상품 합계(60000)로 조건을 본다.
+        assertEquals(Collections.singletonList(order.getId()), found.stream().map(Order::getId).collect(Collectors.toList()));
+        orderSearch.setMaxTotal(59999);
+        assertTrue(orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.first(), 10).isEmpty());
+    }
+
+    @Test
+    void 주문_검색_커밋_전_회원_이름() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberId(memberId);
+        orderSearch.setMemberName("회원1");
+
+        //when
+        //회원 이름 인덱스는 커밋된 변경만 반영하므로 이 트랜잭션에서 만든 회원은 like 검색으로 찾는다.
+        List<Order> flushed = orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.first(), 10);
+        em.find(Member.class, memberId).setName("이름바꾼회원");
+        orderSearch.setMemberName("이름바꾼");
+        List<Order> renamed = orderRepository.findAllBySearch(orderSearch, OrderSearchCursor.first(), 10);
+
+        //then
+        assertEquals(7, flushed.size());
+        assertEquals(7, renamed.size());
+    }
+
+    @Test
+    void 주문_검색_인덱스_사용() {
+        OrderSearch byStatus = new OrderSearch();
+        byStatus.setOrderStatus(OrderStatus.ORDER);
+        byStatus.setOrderDateFrom(LocalDateTime.now().minusDays(1));
+
+        OrderSearch byMember = new OrderSearch();
+        byMember.setMemberId(memberId);
+        byMember.setOrderDateTo(LocalDateTime.now());
+
+        //then
+        OrderSearchCursor next = OrderSearchCursor.after(LocalDateTime.now(), 1L);
+        assertTrue(explain(byStatus, OrderSearchCursor.first()).contains("IDX_ORDERS_STATUS_ORDER_DATE"));
+        assertTrue(explain(byStatus, next).contains("IDX_ORDERS_STATUS_ORDER_DATE"));
+        assertTrue(explain(byMember, OrderSearchCursor.first()).contains("IDX_ORDERS_MEMBER_ORDER_DATE"));
+        assertTrue(explain(byMember, next).contains("IDX_ORDERS_MEMBER_ORDER_DATE"));
+    }
+
+    /**
+     * 주문 검색 1단계 JPQL을 SQL로 바꿔서 H2 실행 계획 조회
+     */
+    private String explain(OrderSearch orderSearch, OrderSearchCursor cursor) {
+        String jpql = orderRepository.searchQuery(orderSearch, cursor, null).getJpql();
+        String sql = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getSqlStrings()[0];
+
+        StringBuilder plan = new StringBuilder();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                }
+            }
+        });
+        return plan.toString().toUpperCase();
+    }
+}
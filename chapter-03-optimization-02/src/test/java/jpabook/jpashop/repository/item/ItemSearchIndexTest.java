@@ -0,0 +1,108 @@
+package jpabook.jpashop.repository.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import jpabook.jpashop.event.ItemChangedEvent;
+import jpabook.jpashop.repository.ItemRepository;
+
+public class ItemSearchIndexTest {
+
+    ItemSearchIndex index = new ItemSearchIndex(null, null);
+
+    @BeforeEach
+    void 상품_세팅() {
+        index.onItemChanged(new ItemChangedEvent(book(1L, "JPA 프로그래밍", "김영한", "978-89-6077-777-1")));
+        index.onItemChanged(new ItemChangedEvent(book(2L, "Spring Boot", "Kim JPA", "978-11-1111-111-1")));
+        index.onItemChanged(new ItemChangedEvent(movie(3L, "Spring Movie", "Director Lee", "Actor Park")));
+    }
+
+    @Test
+    void 가중치_순_검색() {
+        //이름(3)에 JPA가 있는 1번이 저자(2)에 있는 2번보다 먼저
+        assertEquals(Arrays.asList(1L, 2L), ids(index.search("jpa")));
+        //모든 단어가 있어야 한다.
+        assertEquals(Collections.singletonList(2L), ids(index.search("spring kim")));
+        //하위 타입 필드, isbn(하이픈 무시)
+        assertEquals(Collections.singletonList(3L), ids(index.search("park")));
+        assertEquals(Collections.singletonList(1L), ids(index.search("9788960777771")));
+        assertEquals(Collections.singletonList(1L), ids(index.search("978-89-6077-777-1")));
+    }
+
+    @Test
+    void 마지막_단어는_접두어_검색() {
+        assertEquals(Arrays.asList(2L, 3L), ids(index.search("spr")));
+        assertTrue(index.search("spr boot").isEmpty());
+        assertEquals(Collections.singletonList(2L), ids(index.search("spring bo")));
+    }
+
+    @Test
+    void 상품_수정() {
+        //when
+        index.onItemChanged(new ItemChangedEvent(book(2L, "Hibernate", "Gavin", null)));
+
+        //then
+        assertEquals(Collections.singletonList(1L), ids(index.search("jpa")));
+        assertEquals(Collections.singletonList(2L), ids(index.search("hibernate")));
+    }
+
+    @Test
+    void 재구성_실패_후_다시_재구성() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        when(itemRepository.findAll(anyLong(), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("DB 연결 실패"))
+                .thenReturn(Collections.singletonList(book(1L, "JPA 프로그래밍", "김영한", null)));
+        ItemSearchIndex rebuilding = new ItemSearchIndex(itemRepository, mock(PlatformTransactionManager.class));
+
+        //when
+        assertThrows(DataAccessResourceFailureException.class, rebuilding::rebuild);
+
+        //then
+        //실패해도 준비 안 됨 상태로 멈추지 않고 다음 재구성에서 준비된다.
+        assertFalse(rebuilding.isReady());
+        rebuilding.rebuild();
+        assertTrue(rebuilding.isReady());
+        assertEquals(Collections.singletonList(1L), ids(rebuilding.search("jpa")));
+    }
+
+    private List<Long> ids(List<ItemDocument> documents) {
+        return documents.stream().map(ItemDocument::getItemId).collect(Collectors.toList());
+    }
+
+    private Item book(Long id, String name, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setName(name);
+        book.setAuthor(author);
+        book.setIsbn(isbn);
+        return book;
+    }
+
+    private Item movie(Long id, String name, String director, String actor) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setName(name);
+        movie.setDirector(director);
+        movie.setActor(actor);
+        return movie;
+    }
+}
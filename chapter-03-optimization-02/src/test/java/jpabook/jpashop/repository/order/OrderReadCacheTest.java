@@ -0,0 +1,164 @@
+package jpabook.jpashop.repository.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.event.ItemChangedEvent;
+import jpabook.jpashop.event.MemberChangedEvent;
+import jpabook.jpashop.event.OrderChangedEvent;
+import jpabook.jpashop.repository.OrderCursor;
+
+public class OrderReadCacheTest {
+
+    OrderReadCache cache = new OrderReadCache(new SimpleMeterRegistry(), true, 1000, 600);
+    AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void 주문_취소시_포함한_항목만_제거() {
+        List<Long> page1 = firstPage();
+        List<Long> page2 = secondPage();
+        assertEquals(Arrays.asList(1L, 2L), page1);
+        assertEquals(Arrays.asList(3L), page2);
+        firstPage();
+        assertEquals(2, loads.get());
+
+        //when
+        cache.onOrderChanged(new OrderChangedEvent(3L, OrderChangedEvent.Type.CANCELED));
+
+        //then
+        firstPage();
+        assertEquals(2, loads.get());
+        secondPage();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void 주문_생성시_마지막_페이지만_제거() {
+        firstPage();
+        secondPage();
+
+        //when
+        cache.onOrderChanged(new OrderChangedEvent(4L, OrderChangedEvent.Type.CREATED));
+
+        //then
+        //가득 찬 첫 페이지 (, 2] 범위에는 4번 주문이 들어갈 수 없다.
+        firstPage();
+        assertEquals(2, loads.get());
+        secondPage();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void 회원_변경시_그_회원의_주문을_담은_항목만_제거() {
+        firstPage();
+        secondPage();
+
+        //when
+        //3번 주문만 회원 20
+        cache.onMemberChanged(new MemberChangedEvent(20L));
+
+        //then
+        firstPage();
+        assertEquals(2, loads.get());
+        secondPage();
+        assertEquals(3, loads.get());
+
+        //가입(주문 없는 회원)은 제거하지 않는다.
+        cache.onMemberChanged(new MemberChangedEvent(30L));
+        firstPage();
+        secondPage();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void 상품_변경시_그_상품을_담은_항목만_제거() {
+        firstPage();
+        secondPage();
+
+        //when
+        //1, 2번 주문만 상품 100
+        cache.onItemChanged(new ItemChangedEvent(100L));
+
+        //then
+        secondPage();
+        assertEquals(2, loads.get());
+        firstPage();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void 모르는_회원이_섞인_항목은_회원_변경마다_제거() {
+        cache.getAll("unknown", order -> 1, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(new TestOrder(1L, null, 100L));
+        });
+
+        //when
+        cache.onMemberChanged(new MemberChangedEvent(99L));
+
+        //then
+        cache.getAll("unknown", order -> 1, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(new TestOrder(1L, null, 100L));
+        });
+        assertEquals(2, loads.get());
+    }
+
+    private List<Long> firstPage() {
+        return ids(cache.getPage("test", OrderCursor.first(), 2, order -> 1,
+                load(new TestOrder(1L, 10L, 100L), new TestOrder(2L, 10L, 100L))));
+    }
+
+    private List<Long> secondPage() {
+        return ids(cache.getPage("test", OrderCursor.after(2L), 2, order -> 1, load(new TestOrder(3L, 20L, 200L))));
+    }
+
+    private Supplier<List<TestOrder>> load(TestOrder... orders) {
+        return () -> {
+            loads.incrementAndGet();
+            return Arrays.asList(orders);
+        };
+    }
+
+    private static List<Long> ids(List<TestOrder> orders) {
+        return orders.stream().map(TestOrder::getOrderId).collect(Collectors.toList());
+    }
+
+    private static class TestOrder implements OrderReferences {
+
+        final Long orderId;
+        final Long memberId;
+        final Long itemId;
+
+        TestOrder(Long orderId, Long memberId, Long itemId) {
+            this.orderId = orderId;
+            this.memberId = memberId;
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        @Override
+        public Long getMemberId() {
+            return memberId;
+        }
+
+        @Override
+        public Collection<Long> getItemIds() {
+            return Collections.singletonList(itemId);
+        }
+    }
+}
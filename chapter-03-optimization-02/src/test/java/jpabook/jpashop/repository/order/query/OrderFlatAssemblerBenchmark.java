@@ -0,0 +1,82 @@
+package jpabook.jpashop.repository.order.query;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+
+/**
+ * V6 플랫 데이터 조립 방식 비교
+ * - groupingBy: 기존 ordersV6 방식 (row마다 키 DTO 생성 + HashMap 재그룹핑)
+ * - assembler: OrderFlatAssembler (정렬된 row 1회 순회)
+ */
+@Tag("benchmark")
+public class OrderFlatAssemblerBenchmark {
+
+    private static final int ITEMS_PER_ORDER = 4;
+    private static final int WARMUP = 3;
+    private static final int MEASURE = 5;
+
+    @Test
+    void 조립_방식_비교() {
+        System.out.println(String.format("%-10s %15s %15s", "rows", "groupingBy(ms)", "assembler(ms)"));
+        for (int rows : Arrays.asList(10_000, 100_000, 1_000_000)) {
+            List<OrderFlatDto> flats = createFlats(rows);
+
+            double grouping = measure(flats, OrderFlatAssemblerBenchmark::collectByGrouping);
+            double assembler = measure(flats, OrderFlatAssembler::assemble);
+
+            System.out.println(String.format("%-10d %15.2f %15.2f", rows, grouping, assembler));
+        }
+    }
+
+    private static List<OrderQueryDto> collectByGrouping(List<OrderFlatDto> flats) {
+        return flats.stream()
+                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                )).entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+                .collect(toList());
+    }
+
+    /**
+     * 평균 실행 시간(ms)
+     */
+    private double measure(List<OrderFlatDto> flats, Function<List<OrderFlatDto>, List<OrderQueryDto>> assemble) {
+        int expected = flats.size() / ITEMS_PER_ORDER;
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(expected, assemble.apply(flats).size());
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURE; i++) {
+            long start = System.nanoTime();
+            List<OrderQueryDto> result = assemble.apply(flats);
+            total += System.nanoTime() - start;
+            assertEquals(expected, result.size());
+        }
+        return total / (double) MEASURE / 1_000_000;
+    }
+
+    private List<OrderFlatDto> createFlats(int rows) {
+        List<OrderFlatDto> flats = new ArrayList<>(rows);
+        Address address = new Address("서울", "1", "1111");
+        LocalDateTime orderDate = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            long orderId = i / ITEMS_PER_ORDER + 1;
+            flats.add(new OrderFlatDto(orderId, "user" + orderId, orderDate, OrderStatus.ORDER, address, "BOOK" + i, 10000, 1));
+        }
+        return flats;
+    }
+}
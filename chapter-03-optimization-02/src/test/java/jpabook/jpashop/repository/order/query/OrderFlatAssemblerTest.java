@@ -0,0 +1,51 @@
+package jpabook.jpashop.repository.order.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+
+public class OrderFlatAssemblerTest {
+
+    @Test
+    void 주문별_조립_순서유지() {
+        //given
+        List<OrderFlatDto> flats = Arrays.asList(
+                flat(5L, "JPA1 BOOK", 1),
+                flat(5L, "JPA2 BOOK", 2),
+                flat(3L, "SPRING1 BOOK", 3),
+                flat(9L, "SPRING2 BOOK", 4),
+                flat(9L, "SPRING3 BOOK", 5));
+
+        //when
+        List<OrderQueryDto> orders = OrderFlatAssembler.assemble(flats);
+
+        //then
+        //입력 순서 그대로 주문이 나와야 한다.
+        assertEquals(Arrays.asList(5L, 3L, 9L),
+                orders.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList()));
+
+        //주문상품은 주문별로 묶여야 한다.
+        assertEquals(Arrays.asList("JPA1 BOOK", "JPA2 BOOK"),
+                orders.get(0).getOrderItems().stream().map(OrderItemQueryDto::getItemName).collect(Collectors.toList()));
+        assertEquals(1, orders.get(1).getOrderItems().size());
+        assertEquals(2, orders.get(2).getOrderItems().size());
+    }
+
+    @Test
+    void 빈_결과() {
+        assertEquals(0, OrderFlatAssembler.assemble(Arrays.asList()).size());
+    }
+
+    private OrderFlatDto flat(Long orderId, String itemName, int count) {
+        return new OrderFlatDto(orderId, "userA", LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "1", "1111"), itemName, 10000, count);
+    }
+}
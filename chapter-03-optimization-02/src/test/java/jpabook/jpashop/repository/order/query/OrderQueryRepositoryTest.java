@@ -0,0 +1,170 @@
+package jpabook.jpashop.repository.order.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidRequestParameterException;
+import jpabook.jpashop.repository.OrderCursor;
+
+//chunk 경계를 여러 번 넘도록 chunk 크기를 작게 설정
+@ActiveProfiles(value = {"test"})
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "jpashop.in-clause.chunk-size=4")
+@Transactional
+public class OrderQueryRepositoryTest {
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @BeforeEach
+    void 주문_세팅() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+
+        Book book1 = createBook("JPA1 BOOK");
+        Book book2 = createBook("JPA2 BOOK");
+
+        for (int i = 0; i < 11; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            em.persist(Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, 10000, 1),
+                    OrderItem.createOrderItem(book2, 20000, i + 1)));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void 컬렉션_IN절_분할_조회() {
+        //when
+        List<OrderQueryDto> loaded = orderQueryRepository.findOrderQueryDtos();
+        List<OrderQueryDto> result = orderQueryRepository.findAllByDto_optimization();
+
+        //then
+        //BatchLoader, IN 절을 나눠서 조회해도 주문마다 따로 조회한 orderItems와 같아야 한다.
+        List<Long> orderIds = em.createQuery("select o.id from Order o", Long.class).getResultList();
+        assertEquals(orderIds.size(), loaded.size());
+        assertEquals(orderIds.size(), result.size());
+        for (OrderQueryDto order : loaded) {
+            assertEquals(findOrderItems(order.getOrderId()), sorted(order.getOrderItems()));
+        }
+        for (OrderQueryDto order : result) {
+            assertEquals(findOrderItems(order.getOrderId()), sorted(order.getOrderItems()));
+        }
+    }
+
+    @Test
+    void 페이징_offset_키셋() {
+        List<Long> expected = orderQueryRepository.findAllByDto_optimization().stream()
+                .map(OrderQueryDto::getOrderId)
+                .sorted()
+                .collect(Collectors.toList());
+
+        //when
+        List<OrderQueryDto> byOffset = new ArrayList<>();
+        for (int offset = 0; ; offset += 5) {
+            List<OrderQueryDto> page = orderQueryRepository.findAllByDto_optimization(offset, 5);
+            byOffset.addAll(page);
+            if (page.size() < 5) {
+                break;
+            }
+        }
+
+        List<OrderQueryDto> byCursor = new ArrayList<>();
+        OrderCursor cursor = OrderCursor.first();
+        while (true) {
+            List<OrderQueryDto> page = orderQueryRepository.findAllByDto_optimization(cursor, 5);
+            byCursor.addAll(page);
+            if (page.size() < 5) {
+                break;
+            }
+            cursor = OrderCursor.after(page.get(page.size() - 1).getOrderId());
+        }
+
+        //then
+        assertEquals(expected, byOffset.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList()));
+        assertEquals(expected, byCursor.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList()));
+        //페이지에 포함된 주문의 orderItem만 채운다.
+        byCursor.forEach(o -> assertEquals(2, o.getOrderItems().size()));
+    }
+
+    @Test
+    void 필요한_필드만_조회() {
+        //when
+        Map<Long, Map<String, Object>> result = orderQueryRepository.findAllByFields(
+                OrderFieldSet.parse("orderStatus,orderItems.count"), OrderCursor.first(), 5);
+
+        //then
+        assertEquals(5, result.size());
+        Map<String, Object> order = result.values().iterator().next();
+        assertEquals(Arrays.asList("orderStatus", "orderItems"), new ArrayList<>(order.keySet()));
+        List<?> orderItems = (List<?>) order.get("orderItems");
+        assertEquals(2, orderItems.size());
+        assertEquals(Collections.singleton("count"), ((Map<?, ?>) orderItems.get(0)).keySet());
+    }
+
+    @Test
+    void 지원하지_않는_필드() {
+        assertThrows(InvalidRequestParameterException.class, () -> OrderFieldSet.parse("orderId,password"));
+    }
+
+    //주문 하나의 orderItems (IN 절, BatchLoader를 거치지 않는 주문별 조회)
+    private List<OrderItemQueryDto> findOrderItems(Long orderId) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id = :orderId" +
+                        " order by i.name", OrderItemQueryDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+    }
+
+    //IN 조회는 주문 안의 순서를 보장하지 않으므로 상품명 순으로 비교
+    private static List<OrderItemQueryDto> sorted(List<OrderItemQueryDto> orderItems) {
+        return orderItems.stream()
+                .sorted(Comparator.comparing(OrderItemQueryDto::getItemName))
+                .collect(Collectors.toList());
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(1000);
+        em.persist(book);
+        return book;
+    }
+}
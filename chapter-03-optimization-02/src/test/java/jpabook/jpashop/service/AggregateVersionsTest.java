@@ -0,0 +1,33 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import jpabook.jpashop.event.MemberChangedEvent;
+import jpabook.jpashop.event.OrderChangedEvent;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
+
+public class AggregateVersionsTest {
+
+    AggregateVersions versions = new AggregateVersions();
+
+    @Test
+    void 변경된_애그리거트만_ETag가_바뀐다() {
+        String memberEtag = versions.etag(Aggregate.MEMBER);
+        String orderEtag = versions.etag(Aggregate.ORDER, Aggregate.MEMBER);
+
+        //when
+        versions.onOrderChanged(new OrderChangedEvent(1L, OrderChangedEvent.Type.CREATED));
+
+        //then
+        assertEquals(memberEtag, versions.etag(Aggregate.MEMBER));
+        assertNotEquals(orderEtag, versions.etag(Aggregate.ORDER, Aggregate.MEMBER));
+
+        //회원 변경은 주문 목록 ETag도 바꾼다.
+        String changedOrderEtag = versions.etag(Aggregate.ORDER, Aggregate.MEMBER);
+        versions.onMemberChanged(new MemberChangedEvent(1L));
+        assertNotEquals(changedOrderEtag, versions.etag(Aggregate.ORDER, Aggregate.MEMBER));
+    }
+}
@@ -0,0 +1,152 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+
+/**
+ * 여러 상품 주문(OrderService.order(memberId, lines)) (같은 H2)
+ * - 장바구니 크기별 주문 1건 평균 시간: 여러 상품 주문 1번 vs 상품마다 단건 주문
+ * - 상품이 겹치는 장바구니를 스레드마다 다른 순서로 동시에 주문해도 교착 상태 없이 모두 성공
+ */
+@Tag("benchmark")
+@ActiveProfiles(value = {"test"})
+@SpringBootTest
+public class CartOrderBenchmark {
+
+    private static final int[] CART_SIZES = {1, 5, 10, 20, 50};
+    private static final int REPEAT = 200;
+    private static final int THREADS = 8;
+    private static final int CARTS_PER_THREAD = 200;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    void 장바구니_크기별_주문시간() {
+        Long memberId = createMember();
+        List<Long> itemIds = createItems(50, REPEAT * 20);
+
+        //워밍업
+        for (int i = 0; i < 100; i++) {
+            orderService.order(memberId, cart(itemIds, 10));
+        }
+
+        System.out.println(String.format("%-6s %12s %12s %10s", "lines", "cart(ms)", "single(ms)", "cart/1"));
+        double base = 0;
+        for (int size : CART_SIZES) {
+            List<OrderLine> lines = cart(itemIds, size);
+
+            long begin = System.nanoTime();
+            for (int i = 0; i < REPEAT; i++) {
+                orderService.order(memberId, lines);
+            }
+            double cart = (System.nanoTime() - begin) / 1_000_000.0 / REPEAT;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < REPEAT; i++) {
+                for (OrderLine line : lines) {
+                    orderService.order(memberId, line.getItemId(), line.getCount());
+                }
+            }
+            double single = (System.nanoTime() - begin) / 1_000_000.0 / REPEAT;
+
+            if (size == 1) {
+                base = cart;
+            }
+            System.out.println(String.format("%-6d %12.3f %12.3f %10.1f", size, cart, single, cart / base));
+        }
+    }
+
+    @Test
+    void 겹치는_장바구니_동시_주문() throws InterruptedException {
+        Long memberId = createMember();
+        List<Long> itemIds = createItems(20, THREADS * CARTS_PER_THREAD);
+
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long begin = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                List<OrderLine> lines = cart(itemIds, itemIds.size());
+                for (int i = 0; i < CARTS_PER_THREAD; i++) {
+                    //요청 줄 순서는 매번 다르게
+                    Collections.shuffle(lines);
+                    try {
+                        orderService.order(memberId, lines);
+                        ok.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        System.out.println(String.format("threads=%d carts=%d ok=%d failed=%d (%.0f carts/s)",
+                THREADS, THREADS * CARTS_PER_THREAD, ok.get(), failed.get(), ok.get() / seconds));
+        assertEquals(0, failed.get());
+    }
+
+    private static List<OrderLine> cart(List<Long> itemIds, int size) {
+        List<OrderLine> lines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            lines.add(new OrderLine(itemIds.get(i), 1));
+        }
+        return lines;
+    }
+
+    private Long createMember() {
+        return transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("벤치마크");
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    private List<Long> createItems(int count, int stockQuantity) {
+        return transactionTemplate.execute(status -> {
+            List<Long> itemIds = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Book book = new Book();
+                book.setName("CART" + i);
+                book.setPrice(1000);
+                book.setStockQuantity(stockQuantity);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+            return itemIds;
+        });
+    }
+}
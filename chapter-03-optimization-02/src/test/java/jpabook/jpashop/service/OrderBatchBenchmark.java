@@ -0,0 +1,95 @@
+package jpabook.jpashop.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+
+/**
+ * 단건 주문(OrderService.order) vs 일괄 주문(OrderBatchService) 처리량 (같은 H2)
+ * - 회원 MEMBERS명, 상품 ITEMS개에 ORDERS건을 고르게, 재고는 충분하게
+ * - 단건은 주문마다 트랜잭션 1번, 일괄은 chunk-size 줄마다 트랜잭션 1번
+ */
+@Tag("benchmark")
+@ActiveProfiles(value = {"test"})
+@SpringBootTest
+public class OrderBatchBenchmark {
+
+    private static final int ORDERS = 5000;
+    private static final int MEMBERS = 100;
+    private static final int ITEMS = 200;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderBatchService orderBatchService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    void 단건_일괄_비교() {
+        List<OrderBatchLine> lines = createLines();
+
+        //워밍업
+        orderBatchService.order(lines.subList(0, 500));
+        lines.subList(0, 500).forEach(line -> orderService.order(line.getMemberId(), line.getItemId(), line.getCount()));
+
+        long begin = System.nanoTime();
+        for (OrderBatchLine line : lines) {
+            orderService.order(line.getMemberId(), line.getItemId(), line.getCount());
+        }
+        double single = ORDERS / ((System.nanoTime() - begin) / 1_000_000_000.0);
+
+        begin = System.nanoTime();
+        long ok = orderBatchService.order(lines).stream().filter(OrderBatchResult::isSuccess).count();
+        double batch = ORDERS / ((System.nanoTime() - begin) / 1_000_000_000.0);
+
+        System.out.println(String.format("%-8s %12s", "path", "orders/s"));
+        System.out.println(String.format("%-8s %12.0f", "single", single));
+        System.out.println(String.format("%-8s %12.0f (ok=%d, x%.1f)", "batch", batch, ok, batch / single));
+    }
+
+    private List<OrderBatchLine> createLines() {
+        return transactionTemplate.execute(status -> {
+            List<Long> memberIds = new ArrayList<>();
+            for (int i = 0; i < MEMBERS; i++) {
+                Member member = new Member();
+                member.setName("벤치마크" + i);
+                member.setAddress(new Address("서울", "1", "1111"));
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            List<Long> itemIds = new ArrayList<>();
+            for (int i = 0; i < ITEMS; i++) {
+                Book book = new Book();
+                book.setName("BOOK" + i);
+                book.setPrice(10000);
+                book.setStockQuantity(ORDERS * 4);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+            List<OrderBatchLine> lines = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                lines.add(new OrderBatchLine(memberIds.get(i % MEMBERS), itemIds.get(i % ITEMS), 1));
+            }
+            return lines;
+        });
+    }
+}
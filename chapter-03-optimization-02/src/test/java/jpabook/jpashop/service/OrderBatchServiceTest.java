@@ -0,0 +1,120 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jpabook.jpashop.CommittedDataTestSupport;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.ItemRepository;
+
+/**
+ * chunk마다 트랜잭션을 커밋한다. (committed 프로필: chunk-size 2)
+ */
+public class OrderBatchServiceTest extends CommittedDataTestSupport {
+
+    @Autowired
+    OrderBatchService orderBatchService;
+
+    @Autowired
+    StockLedger stockLedger;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    Long bookId;
+    Long otherBookId;
+
+    @BeforeEach
+    void 데이터_세팅() {
+        bookId = book("일괄책1", 5);
+        otherBookId = book("일괄책2", 1);
+    }
+
+    @Test
+    void 줄마다_결과() {
+        //when
+        List<OrderBatchResult> results = orderBatchService.order(Arrays.asList(
+                new OrderBatchLine(memberId, bookId, 2),
+                new OrderBatchLine(memberId, otherBookId, 2), //재고 부족
+                new OrderBatchLine(memberId, bookId, 3),      //같은 상품 여러 줄
+                new OrderBatchLine(-1L, bookId, 1),           //회원 없음
+                new OrderBatchLine(memberId, -1L, 1),         //상품 없음
+                new OrderBatchLine(memberId, otherBookId, 1)));
+
+        //then
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertFalse(results.get(4).isSuccess());
+        assertTrue(results.get(5).isSuccess());
+        assertNull(results.get(1).getOrderId());
+
+        assertEquals(0, stock(bookId));
+        assertEquals(0, stock(otherBookId));
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = em.find(Order.class, results.get(2).getOrderId());
+            assertEquals(3, order.getOrderItems().get(0).getCount());
+            assertEquals(memberId, order.getMember().getId());
+            //주문 요약도 같이 저장
+            assertEquals(30000, em.find(OrderSummary.class, order.getId()).getTotalPrice());
+        });
+    }
+
+    @Test
+    void 재고_장부_상품은_row_락_없이() throws Exception {
+        Long ledgerBookId = book("일괄한정판", 3);
+        stockLedger.enable(ledgerBookId);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        //다른 트랜잭션이 장부 상품의 item row 락을 잡고 있다.
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    itemRepository.findOneForUpdate(ledgerBookId);
+                    locked.countDown();
+                    try {
+                        done.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try {
+            //when
+            List<OrderBatchResult> results = orderBatchService.order(Arrays.asList(
+                    new OrderBatchLine(memberId, ledgerBookId, 2),
+                    new OrderBatchLine(memberId, bookId, 1)));
+
+            //then
+            //락을 기다리지 않고 장부에서 예약 (락을 잡으려 했다면 lock timeout으로 chunk 실패)
+            assertTrue(results.get(0).isSuccess());
+            assertTrue(results.get(1).isSuccess());
+            assertEquals(1, stockLedger.getAvailable(ledgerBookId));
+        } finally {
+            done.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            stockLedger.disable(ledgerBookId);
+        }
+        assertEquals(1, stock(ledgerBookId));
+        assertEquals(4, stock(bookId));
+    }
+}
@@ -0,0 +1,89 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+
+public class OrderFetchPlannerTest {
+
+    OrderQueryRepository orderQueryRepository = mock(OrderQueryRepository.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    //fetch-join-max-orders 1000, dense-min-items-per-order 4, flat-max-rows 50000
+    OrderFetchPlanner planner = new OrderFetchPlanner(orderQueryRepository, meterRegistry, 30000, 1000, 4, 50000);
+
+    @Test
+    void 페이징_요청은_통계와_상관없이_V5_PAGED() {
+        assertEquals(OrderFetchPlan.V5_PAGED, planner.plan(true));
+
+        //통계를 조회하지 않는다.
+        verify(orderQueryRepository, times(0)).estimateOrderCount();
+    }
+
+    @Test
+    void 주문이_적고_주문당_상품이_적으면_V3_FETCH_JOIN() {
+        stats(1000, 3000);
+
+        assertEquals(OrderFetchPlan.V3_FETCH_JOIN, planner.plan(false));
+    }
+
+    @Test
+    void 주문당_상품이_많고_전체_row가_적으면_V6_FLAT() {
+        //주문당 4개, 전체 50000 row (경계값)
+        stats(12500, 50000);
+
+        assertEquals(OrderFetchPlan.V6_FLAT, planner.plan(false));
+    }
+
+    @Test
+    void 주문당_상품이_많아도_전체_row가_많으면_플랫_조회하지_않는다() {
+        stats(12501, 50004);
+
+        assertEquals(OrderFetchPlan.V5_ONE_PLUS_ONE, planner.plan(false));
+    }
+
+    @Test
+    void 주문이_많고_주문당_상품이_적으면_V5_ONE_PLUS_ONE() {
+        stats(1001, 2002);
+
+        assertEquals(OrderFetchPlan.V5_ONE_PLUS_ONE, planner.plan(false));
+    }
+
+    @Test
+    void 주문이_없으면_V3_FETCH_JOIN() {
+        stats(0, 0);
+
+        assertEquals(OrderFetchPlan.V3_FETCH_JOIN, planner.plan(false));
+    }
+
+    @Test
+    void 통계는_캐시하고_선택한_전략은_메트릭으로_센다() {
+        stats(10, 10);
+
+        planner.plan(false);
+        planner.plan(false);
+        planner.plan(true);
+
+        //stats-ttl-millis 동안 통계는 1번만 조회
+        verify(orderQueryRepository, times(1)).estimateOrderCount();
+        verify(orderQueryRepository, times(1)).estimateOrderItemCount();
+        assertEquals(2, count(OrderFetchPlan.V3_FETCH_JOIN));
+        assertEquals(1, count(OrderFetchPlan.V5_PAGED));
+    }
+
+    private void stats(long orders, long orderItems) {
+        when(orderQueryRepository.estimateOrderCount()).thenReturn(orders);
+        when(orderQueryRepository.estimateOrderItemCount()).thenReturn(orderItems);
+    }
+
+    private double count(OrderFetchPlan plan) {
+        return meterRegistry.get("jpashop.order.fetch_plan").tag("plan", plan.name()).counter().count();
+    }
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import jpabook.jpashop.CommittedDataTestSupport;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockShardRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderRepository;
+
+/**
+ * 주문 트랜잭션을 서비스가 직접 시작하고 커밋/롤백하는 경우 (테스트 트랜잭션 없이)
+ */
+public class OrderServiceCommittedTest extends CommittedDataTestSupport {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    StockLedger stockLedger;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    OrderSummaryService orderSummaryService;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    ItemStockShardRepository itemStockShardRepository;
+
+    @Test
+    void 여러_상품_주문_재고수량초과_롤백() {
+        Long bookId = book("장바구니책1", 5);
+        Long ledgerBookId = book("장바구니한정판", 3);
+        Long otherId = book("장바구니책2", 1);
+        stockLedger.enable(ledgerBookId);
+
+        try {
+            //when
+            //앞 줄(item_id 순)은 차감/예약한 뒤 마지막 줄에서 재고 부족
+            assertThrows(NotEnoughStockException.class, () -> orderService.order(memberId, Arrays.asList(
+                    new OrderLine(bookId, 2),
+                    new OrderLine(ledgerBookId, 1),
+                    new OrderLine(otherId, 2))));
+
+            //then
+            //주문 전체 롤백, 커밋된 재고와 장부 모두 그대로
+            assertEquals(5, stock(bookId));
+            assertEquals(1, stock(otherId));
+            assertEquals(3, stockLedger.getAvailable(ledgerBookId));
+            assertEquals(0L, transactionTemplate.execute(status ->
+                    em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                            .setParameter("memberId", memberId)
+                            .getSingleResult()));
+        } finally {
+            stockLedger.disable(ledgerBookId);
+        }
+        assertEquals(3, stock(ledgerBookId));
+    }
+
+    @Test
+    void 회원_이름_변경_주문_요약_갱신() {
+        Long orderId = orderService.order(memberId, book("요약책", 5), 1);
+
+        //when
+        memberService.update(memberId, "바뀐이름");
+
+        //then
+        //회원 수정 커밋 후 주문 요약 회원 이름도 바뀐다.
+        assertEquals("바뀐이름", transactionTemplate.execute(status ->
+                em.find(OrderSummary.class, orderId).getMemberName()));
+    }
+
+    @Test
+    void OPTIMISTIC_재고_충돌_재시도() {
+        Long itemId = book("충돌책", 5);
+        AtomicInteger attempts = new AtomicInteger();
+        OrderService conflicting = conflictingOrderService(2, 3, attempts);
+
+        //when
+        //두 번 충돌하고 세 번째 트랜잭션에서 성공
+        conflicting.order(memberId, itemId, 2, StockStrategy.OPTIMISTIC);
+
+        //then
+        assertEquals(3, attempts.get());
+        assertEquals(3, stock(itemId));
+        assertEquals(1, countOrders(itemId));
+    }
+
+    @Test
+    void OPTIMISTIC_재고_충돌_최대_시도_횟수() {
+        Long itemId = book("계속충돌책", 5);
+        AtomicInteger attempts = new AtomicInteger();
+        OrderService conflicting = conflictingOrderService(Integer.MAX_VALUE, 3, attempts);
+
+        //when
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> conflicting.order(memberId, itemId, 2, StockStrategy.OPTIMISTIC));
+
+        //then
+        //max-attempts(첫 시도 포함)만큼만 시도하고 모두 롤백
+        assertEquals(3, attempts.get());
+        assertEquals(5, stock(itemId));
+        assertEquals(0, countOrders(itemId));
+    }
+
+    /**
+     * 재고 차감 전에 다른 트랜잭션이 상품 version을 올려서 OPTIMISTIC 차감이 conflicts번 충돌하는 주문 서비스
+     */
+    private OrderService conflictingOrderService(int conflicts, int maxAttempts, AtomicInteger attempts) {
+        StockProperties stockProperties = new StockProperties();
+        stockProperties.setMaxAttempts(maxAttempts);
+        stockProperties.setBackoffMillis(1);
+        StockManager stockManager = new StockManager(itemRepository, itemStockShardRepository, stockProperties, stockLedger) {
+            @Override
+            public Item removeStock(Long itemId, int count, StockStrategy strategy) {
+                if (attempts.incrementAndGet() <= conflicts) {
+                    //이 트랜잭션이 version을 읽은 뒤 다른 트랜잭션이 커밋
+                    itemRepository.findOne(itemId);
+                    CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status ->
+                            itemRepository.addStock(itemId, 0))).join();
+                }
+                return super.removeStock(itemId, count, strategy);
+            }
+        };
+        return new OrderService(orderRepository, memberRepository, orderSummaryService, eventPublisher,
+                itemRepository, stockManager, stockLedger, stockProperties, transactionTemplate);
+    }
+
+    private long countOrders(Long itemId) {
+        return transactionTemplate.execute(status ->
+                em.createQuery("select count(oi) from OrderItem oi where oi.item.id = :itemId", Long.class)
+                        .setParameter("itemId", itemId)
+                        .getSingleResult());
+    }
+}
@@ -3,6 +3,9 @@ package jpabook.jpashop.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
@@ -19,9 +22,13 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchCursor;
+import jpabook.jpashop.repository.OrderSummaryRepository;
 
 @ActiveProfiles(value = {"test"})
 @ExtendWith(SpringExtension.class)
@@ -37,6 +44,9 @@ public class OrderServiceTest {
     
     @Autowired
     OrderRepository orderRepository;
+
+    @Autowired
+    OrderSummaryRepository orderSummaryRepository;
     
     private Member member;
     private Book book;
@@ -111,4 +121,130 @@ public class OrderServiceTest {
         assertEquals(10, book.getStockQuantity());
     }
 
+    @Test
+    public void 주문요약_갱신() {
+        //given
+        int orderCount = 3;
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), orderCount);
+
+        //then
+        //주문시 주문 요약도 같은 트랜잭션에서 저장된다.
+        OrderSummary orderSummary = orderSummaryRepository.findOne(orderId);
+        assertEquals(OrderStatus.ORDER, orderSummary.getStatus());
+        assertEquals("회원1", orderSummary.getMemberName());
+        assertEquals(1, orderSummary.getItemCount());
+        assertEquals(10000 * orderCount, orderSummary.getTotalPrice());
+
+        //주문 취소시 주문 요약 상태도 CANCEL
+        orderService.cancelOrder(orderId);
+        assertEquals(OrderStatus.CANCEL, orderSummaryRepository.findOne(orderId).getStatus());
+    }
+
+    @Test
+    public void 재고_차감_방식() {
+        //테스트 트랜잭션 안이므로 OPTIMISTIC 재시도는 하지 않는다. (재시도는 OrderServiceCommittedTest)
+        for (StockStrategy strategy : StockStrategy.values()) {
+            //given
+            Book item = new Book();
+            item.setName("재고 " + strategy);
+            item.setStockQuantity(5);
+            item.setPrice(1000);
+            em.persist(item);
+            em.flush(); //select ... for update로 잠글 row
+
+            //when
+            orderService.order(member.getId(), item.getId(), 3, strategy);
+
+            //then
+            //어떤 방식이든 재고가 차감되고, 남은 재고보다 많이 주문하면 예외
+            assertEquals(2, item.getStockQuantity(), strategy.name());
+            assertThrows(NotEnoughStockException.class,
+                    () -> orderService.order(member.getId(), item.getId(), 3, strategy), strategy.name());
+            assertEquals(2, item.getStockQuantity(), strategy.name());
+        }
+    }
+
+    @Test
+    public void 여러_상품_주문() {
+        //given
+        Book other = new Book();
+        other.setName("다른 책");
+        other.setStockQuantity(5);
+        other.setPrice(2000);
+        em.persist(other);
+
+        //when
+        //요청 줄 순서와 상관없이 item_id 순으로 차감, 같은 상품 여러 줄은 합쳐서 차감
+        Long orderId = orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(other.getId(), 2),
+                new OrderLine(book.getId(), 1),
+                new OrderLine(other.getId(), 1)));
+
+        //then
+        //주문 1건에 주문상품은 요청 줄 수만큼
+        Order getOrder = orderRepository.findOne(orderId);
+        assertEquals(OrderStatus.ORDER, getOrder.getStatus());
+        assertEquals(3, getOrder.getOrderItems().size());
+        assertEquals(10000 + 2000 * 3, getOrder.getTotalPrice());
+        assertEquals(9, book.getStockQuantity());
+        assertEquals(2, other.getStockQuantity());
+        assertEquals(3, orderSummaryRepository.findOne(orderId).getItemCount());
+
+        //주문 취소시 모든 상품 재고 복구
+        orderService.cancelOrder(orderId);
+        assertEquals(10, book.getStockQuantity());
+        assertEquals(5, other.getStockQuantity());
+    }
+
+    @Test
+    public void 여러_상품_주문_재고수량초과() {
+        //given
+        Book other = new Book();
+        other.setName("다른 책");
+        other.setStockQuantity(1);
+        other.setPrice(2000);
+        em.persist(other);
+
+        //then
+        //한 줄이라도 재고가 모자라면 주문 전체 실패 (롤백된 재고는 OrderServiceCommittedTest에서 확인)
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book.getId(), 2),
+                new OrderLine(other.getId(), 2))));
+
+        //없는 상품, 수량 0은 IllegalArgumentException
+        assertThrows(IllegalArgumentException.class, () -> orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book.getId(), 1),
+                new OrderLine(-1L, 1))));
+        assertThrows(IllegalArgumentException.class, () -> orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book.getId(), 0))));
+    }
+
+    @Test
+    public void 주문_검색_페이징() {
+        //given
+        Long first = orderService.order(member.getId(), book.getId(), 1);
+        Long second = orderService.order(member.getId(), book.getId(), 5);
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberId(member.getId());
+
+        //when
+        List<Order> page = orderService.findOrders(orderSearch, OrderSearchCursor.first(), 1);
+        Order last = page.get(0);
+        List<Order> next = orderService.findOrders(orderSearch,
+                OrderSearchCursor.after(last.getOrderDate(), last.getId()), 1);
+
+        //then
+        //회원 id 조건, 주문시간 순 커서로 이어서 조회
+        assertEquals(first, last.getId());
+        assertEquals(second, next.get(0).getId());
+
+        //주문 금액 조건 (order_summary)
+        orderSearch.setMinTotal(50000);
+        List<Order> expensive = orderService.findOrders(orderSearch, OrderSearchCursor.first(), 10);
+        assertEquals(1, expensive.size());
+        assertEquals(second, expensive.get(0).getId());
+    }
 }
@@ -0,0 +1,192 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jpabook.jpashop.CommittedDataTestSupport;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.StockLedgerSwitchedException;
+import jpabook.jpashop.repository.ItemRepository;
+
+/**
+ * flush는 커밋된 주문상품만 본다.
+ */
+public class StockLedgerTest extends CommittedDataTestSupport {
+
+    @Autowired
+    StockLedger stockLedger;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    StockManager stockManager;
+
+    Long itemId;
+
+    @BeforeEach
+    void 데이터_세팅() {
+        itemId = book("한정판", 5);
+        stockLedger.enable(itemId);
+    }
+
+    @AfterEach
+    void 장부_끄기() {
+        stockLedger.disable(itemId);
+    }
+
+    @Test
+    void 예약_품절_반영() {
+        //when
+        Long orderId = orderService.order(memberId, itemId, 3);
+        orderService.order(memberId, itemId, 2);
+
+        //then
+        //장부에서 품절이면 트랜잭션 없이 거절
+        assertEquals(0, stockLedger.getAvailable(itemId));
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(memberId, itemId, 1));
+
+        //주문 트랜잭션은 item row를 수정하지 않는다.
+        assertEquals(5, stock(itemId));
+        assertEquals(5, stockLedger.flush(itemId));
+        assertEquals(0, stock(itemId));
+
+        //반영 후 취소하면 재고와 장부 모두 돌아온다.
+        orderService.cancelOrder(orderId);
+        assertEquals(3, stock(itemId));
+        assertEquals(3, stockLedger.getAvailable(itemId));
+    }
+
+    @Test
+    void 반영_전_취소() {
+        Long orderId = orderService.order(memberId, itemId, 4);
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        //재고에 반영되지 않은 주문상품은 반영 대상에서 빠진다.
+        assertEquals(5, stockLedger.getAvailable(itemId));
+        assertEquals(0, stockLedger.flush(itemId));
+        assertEquals(5, stock(itemId));
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("select oi from OrderItem oi where oi.order.id = :orderId", OrderItem.class)
+                        .setParameter("orderId", orderId)
+                        .getResultList()
+                        .forEach(oi -> assertFalse(oi.isStockPending())));
+    }
+
+    @Test
+    void 장애_복구() {
+        orderService.order(memberId, itemId, 2);
+
+        //when
+        //반영 전에 재기동 -> 새 장부는 stock_quantity - 미반영 수량으로 시작
+        StockLedger restarted = new StockLedger(itemRepository, transactionTemplate);
+
+        //then
+        assertEquals(3, restarted.enable(itemId));
+        restarted.recover();
+        assertEquals(3, stock(itemId));
+        assertEquals(3, restarted.enable(itemId));
+    }
+
+    @Test
+    void 켜기는_직접_차감_커밋을_기다림() throws Exception {
+        Long directItemId = book("일반판", 5);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        //item row 락을 잡고 직접 차감한 주문이 아직 커밋 전
+        CompletableFuture<Void> direct = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    stockManager.removeStock(directItemId, 2, StockStrategy.PESSIMISTIC_WRITE);
+                    locked.countDown();
+                    await(commit);
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        //when
+        CompletableFuture<Integer> enabled = CompletableFuture.supplyAsync(() -> stockLedger.enable(directItemId));
+        Thread.sleep(100);
+        commit.countDown();
+        direct.get(5, TimeUnit.SECONDS);
+
+        //then
+        //row 락을 기다렸다가 커밋된 재고로 시작
+        try {
+            assertEquals(3, enabled.get(5, TimeUnit.SECONDS));
+        } finally {
+            stockLedger.disable(directItemId);
+        }
+    }
+
+    @Test
+    void 켜진_뒤_직접_차감은_물러남() {
+        //장부를 켜기 전에 직접 차감으로 보낸 주문이 row 락을 잡고 보니 장부가 켜져 있다.
+        assertThrows(StockLedgerSwitchedException.class, () ->
+                transactionTemplate.executeWithoutResult(status ->
+                        stockManager.removeStock(itemId, 1, StockStrategy.ATOMIC_UPDATE)));
+
+        //then
+        //롤백, 장부 수량과 재고 모두 그대로
+        assertEquals(5, stock(itemId));
+        assertEquals(5, stockLedger.getAvailable(itemId));
+    }
+
+    @Test
+    void 끄기는_진행_중_주문을_기다림() throws Exception {
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        //장부에서 예약하고 아직 커밋 전인 주문
+        CompletableFuture<Void> ordering = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    stockLedger.releaseOnRollback(stockLedger.tryReserve(itemId, 2));
+                    reserved.countDown();
+                    await(commit);
+                }));
+        assertTrue(reserved.await(5, TimeUnit.SECONDS));
+
+        //when
+        CompletableFuture<Void> disabled = CompletableFuture.runAsync(() -> stockLedger.disable(itemId));
+        Thread.sleep(100);
+
+        //then
+        //끄는 중에는 장부를 닫지 않고 새 예약은 물러난다.
+        assertTrue(stockLedger.isManaged(itemId));
+        assertThrows(StockLedgerSwitchedException.class, () -> stockLedger.tryReserve(itemId, 1));
+        //다른 상품의 켜기/끄기는 기다리지 않는다.
+        Long otherId = book("다른한정판", 4);
+        assertEquals(4, CompletableFuture.supplyAsync(() -> stockLedger.enable(otherId)).get(1, TimeUnit.SECONDS));
+        stockLedger.disable(otherId);
+
+        commit.countDown();
+        ordering.get(5, TimeUnit.SECONDS);
+        disabled.get(5, TimeUnit.SECONDS);
+        assertFalse(stockLedger.isManaged(itemId));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
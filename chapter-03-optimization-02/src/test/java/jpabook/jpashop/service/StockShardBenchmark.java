@@ -0,0 +1,118 @@
+package jpabook.jpashop.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+
+/**
+ * 재고 shard 수별 hot 상품 주문 처리량 (H2)
+ * - shards 0은 shard 없이 item row 하나 (ATOMIC_UPDATE)
+ * - 재고는 주문 수보다 많게 -> 품절 없이 row 락 경합만 비교
+ * - 재고 + 판매량 != 초기 재고면 lost update
+ */
+@Tag("benchmark")
+@ActiveProfiles(value = {"test"})
+@SpringBootTest(properties = {"jpashop.scheduling.enabled=true", "jpashop.stock.shard.rebalance-interval-millis=200"})
+public class StockShardBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 300;
+    private static final int STOCK = THREADS * ORDERS_PER_THREAD * 2;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    StockShardService stockShardService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    void shard_수별_처리량() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("벤치마크");
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+            return member.getId();
+        });
+
+        System.out.println(String.format("%-8s %12s %8s %10s %8s %12s",
+                "shards", "orders/s", "ok", "no-stock", "failed", "lost-update"));
+        for (int shards : new int[]{0, 1, 2, 4, 8, 16}) {
+            run(memberId, shards);
+        }
+    }
+
+    private void run(Long memberId, int shards) throws InterruptedException {
+        Long itemId = createItem();
+        if (shards > 0) {
+            stockShardService.enable(itemId, shards);
+        }
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger noStock = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderService.order(memberId, itemId, 1, StockStrategy.ATOMIC_UPDATE);
+                        ok.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        noStock.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet(); //락 타임아웃 등
+                    }
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        int stock = transactionTemplate.execute(status -> stockShardService.getTotalStock(em.find(Item.class, itemId)));
+        System.out.println(String.format("%-8d %12.0f %8d %10d %8d %12d",
+                shards, ok.get() / seconds, ok.get(), noStock.get(), failed.get(), Math.abs(STOCK - ok.get() - stock)));
+    }
+
+    private Long createItem() {
+        return transactionTemplate.execute(status -> {
+            Book book = new Book();
+            book.setName("HOT");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+}
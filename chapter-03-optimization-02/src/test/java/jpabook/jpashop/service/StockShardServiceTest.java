@@ -0,0 +1,109 @@
+package jpabook.jpashop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jpabook.jpashop.CommittedDataTestSupport;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+
+/**
+ * shard 차감/재분배는 커밋된 row를 본다.
+ */
+public class StockShardServiceTest extends CommittedDataTestSupport {
+
+    @Autowired
+    StockShardService stockShardService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ItemService itemService;
+
+    Long itemId;
+
+    @BeforeEach
+    void 데이터_세팅() {
+        itemId = book("인기책", 10);
+    }
+
+    @Test
+    void 나누기_차감_합치기() {
+        //when
+        stockShardService.enable(itemId, 3);
+
+        //then
+        assertEquals(Arrays.asList(4, 3, 3), stockShardService.getQuantities(itemId));
+        assertEquals(10, stock(itemId));
+
+        //한 shard로 모자라면 여러 shard에 걸쳐서 차감
+        orderService.order(memberId, itemId, 6);
+        assertEquals(4, stock(itemId));
+        orderService.order(memberId, itemId, 4);
+        assertEquals(0, stock(itemId));
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(memberId, itemId, 1));
+
+        stockShardService.disable(itemId);
+        assertEquals(Collections.emptyList(), stockShardService.getQuantities(itemId));
+        assertEquals(0, stock(itemId));
+    }
+
+    @Test
+    void 취소된_재고_재분배() {
+        stockShardService.enable(itemId, 2);
+        Long orderId = orderService.order(memberId, itemId, 4);
+
+        //when
+        //취소된 재고는 item.stock_quantity로 돌아온다.
+        orderService.cancelOrder(orderId);
+        assertEquals(10, stock(itemId));
+
+        //then
+        assertTrue(stockShardService.rebalance(itemId));
+        assertEquals(Arrays.asList(5, 5), stockShardService.getQuantities(itemId));
+        assertFalse(stockShardService.rebalance(itemId));
+        assertEquals(10, stock(itemId));
+    }
+
+    @Test
+    void 재고_수정() {
+        stockShardService.enable(itemId, 4);
+
+        //when
+        itemService.updateItem(itemId, "인기책", 10000, 7);
+
+        //then
+        assertEquals(Arrays.asList(2, 2, 2, 1), stockShardService.getQuantities(itemId));
+        assertEquals(7, stock(itemId));
+    }
+
+    @Test
+    void 전체_재고_조회() {
+        Long otherId = book("보통책", 3);
+        stockShardService.enable(itemId, 2);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Item item = em.find(Item.class, itemId);
+            Item other = em.find(Item.class, otherId);
+
+            //상품 조회에는 shard 밖의 재고만, 수정 화면은 전체 재고로 보여주고 그대로 저장한다.
+            assertEquals(0, item.getStockQuantity());
+            assertEquals(10, itemService.getTotalStock(item));
+            assertEquals(3, itemService.getTotalStock(other));
+            assertEquals(10, (int) itemService.getTotalStocks(Arrays.asList(item, other)).get(itemId));
+            assertEquals(3, (int) itemService.getTotalStocks(Arrays.asList(item, other)).get(otherId));
+        });
+        itemService.updateItem(itemId, "인기책", 10000, 10);
+        assertEquals(10, stock(itemId));
+    }
+}
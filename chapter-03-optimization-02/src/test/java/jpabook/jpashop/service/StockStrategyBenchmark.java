@@ -0,0 +1,135 @@
+package jpabook.jpashop.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+
+/**
+ * 재고 차감 방식(StockStrategy)별 동시 주문 비교
+ * - hot: 모든 주문이 상품 1개에 몰림, uniform: 상품 ITEMS개에 고르게
+ * - 처리량(성공 주문/초), 재고 부족/실패 수, oversell(초기 재고보다 더 판 수량), lost update(재고 + 판매량 != 초기 재고)
+ */
+@Tag("benchmark")
+@ActiveProfiles(value = {"test"})
+@SpringBootTest
+public class StockStrategyBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 200;
+    private static final int ITEMS = 50;
+    private static final int STOCK = 2000; //hot 상품은 주문 수(3200)보다 적게
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    void 재고_차감_방식_비교() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("벤치마크");
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+            return member.getId();
+        });
+
+        System.out.println(String.format("%-18s %-8s %12s %8s %10s %8s %10s %12s",
+                "strategy", "items", "orders/s", "ok", "no-stock", "failed", "oversell", "lost-update"));
+        for (StockStrategy strategy : StockStrategy.values()) {
+            for (int items : new int[]{1, ITEMS}) {
+                run(memberId, strategy, items);
+            }
+        }
+    }
+
+    private void run(Long memberId, StockStrategy strategy, int itemCount) throws InterruptedException {
+        List<Long> itemIds = createItems(itemCount);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger noStock = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Map<Long, AtomicInteger> sold = new HashMap<>();
+        itemIds.forEach(id -> sold.put(id, new AtomicInteger()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    Long itemId = itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+                    try {
+                        orderService.order(memberId, itemId, 1, strategy);
+                        ok.incrementAndGet();
+                        sold.get(itemId).incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        noStock.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet(); //재시도 초과, 락 타임아웃 등
+                    }
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        int oversell = 0;
+        int lostUpdate = 0;
+        for (Long itemId : itemIds) {
+            int stock = transactionTemplate.execute(status -> em.find(Item.class, itemId).getStockQuantity());
+            int soldCount = sold.get(itemId).get();
+            oversell += Math.max(0, soldCount - STOCK);
+            lostUpdate += Math.abs(STOCK - soldCount - stock);
+        }
+
+        System.out.println(String.format("%-18s %-8d %12.0f %8d %10d %8d %10d %12d",
+                strategy, itemCount, ok.get() / seconds, ok.get(), noStock.get(), failed.get(), oversell, lostUpdate));
+    }
+
+    private List<Long> createItems(int count) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Book book = new Book();
+                book.setName("BOOK" + i);
+                book.setPrice(10000);
+                book.setStockQuantity(STOCK);
+                em.persist(book);
+                ids.add(book.getId());
+            }
+            return ids;
+        });
+    }
+}
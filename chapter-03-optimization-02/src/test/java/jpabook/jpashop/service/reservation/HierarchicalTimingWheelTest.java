@@ -0,0 +1,68 @@
+package jpabook.jpashop.service.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class HierarchicalTimingWheelTest {
+
+    @Test
+    void 만료_시간_전에는_꺼내지_않는다() {
+        //tick 10ms, 4칸, 3단 -> 최대 640ms
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 3, 0);
+        wheel.schedule("a", 15);
+        wheel.schedule("b", 35);
+        wheel.schedule("c", 500); //상위 휠에서 내려와야 만료
+
+        assertEquals(Collections.emptyList(), wheel.advance(19));
+        assertEquals(Collections.singletonList("a"), wheel.advance(20));
+        assertEquals(Collections.singletonList("b"), wheel.advance(499));
+        assertEquals(Collections.singletonList("c"), wheel.advance(500));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void 취소() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 3, 0);
+        HierarchicalTimingWheel.Timeout<String> a = wheel.schedule("a", 100);
+        wheel.schedule("b", 100);
+
+        assertTrue(a.cancel());
+        assertFalse(a.cancel());
+        assertEquals(Collections.singletonList("b"), wheel.advance(100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void 많이_등록해도_만료_시간_순서대로() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1, 8, 4, 1000);
+        List<Integer> deadlines = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            deadlines.add(1000 + (i * 7919) % 4000); //범위 안에서 섞인 순서
+        }
+        deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+
+        List<Integer> expired = new ArrayList<>();
+        for (long now = 1000; now <= 5000; now += 37) {
+            List<Integer> batch = wheel.advance(now);
+            for (Integer deadline : batch) {
+                assertTrue(deadline <= now);
+                assertTrue(deadline > now - 37);
+            }
+            expired.addAll(batch);
+        }
+        expired.addAll(wheel.advance(5000));
+
+        Integer[] sorted = deadlines.toArray(new Integer[0]);
+        Arrays.sort(sorted);
+        Collections.sort(expired);
+        assertEquals(Arrays.asList(sorted), expired);
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop.service.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jpabook.jpashop.CommittedDataTestSupport;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.StockReservationNotAllowedException;
+import jpabook.jpashop.service.StockLedger;
+import jpabook.jpashop.service.StockShardService;
+
+/**
+ * 만료는 커밋된 예약만 본다. (committed 프로필: ttl 1초, tick 50ms)
+ */
+public class StockReservationServiceTest extends CommittedDataTestSupport {
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    StockShardService stockShardService;
+
+    @Autowired
+    StockLedger stockLedger;
+
+    Long itemId;
+
+    @BeforeEach
+    void 데이터_세팅() {
+        itemId = book("장바구니책", 5);
+    }
+
+    @Test
+    void 예약_확정() {
+        //when
+        StockReservation reservation = stockReservationService.reserve(memberId, itemId, 3);
+
+        //then
+        assertEquals(2, stock(itemId));
+        assertThrows(NotEnoughStockException.class, () -> stockReservationService.reserve(memberId, itemId, 3));
+
+        Long orderId = stockReservationService.confirm(reservation.getId());
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = em.find(Order.class, orderId);
+            assertEquals(1, order.getOrderItems().size());
+            assertEquals(3, order.getOrderItems().get(0).getCount());
+            assertEquals(30000, order.getTotalPrice());
+        });
+        //확정은 재고를 다시 차감하지 않고, 확정된 예약은 해제/만료되지 않는다.
+        assertEquals(2, stock(itemId));
+        assertFalse(stockReservationService.release(reservation.getId()));
+        assertThrows(IllegalStateException.class, () -> stockReservationService.confirm(reservation.getId()));
+    }
+
+    @Test
+    void 해제() {
+        StockReservation reservation = stockReservationService.reserve(memberId, itemId, 4);
+
+        //when
+        assertTrue(stockReservationService.release(reservation.getId()));
+
+        //then
+        assertEquals(5, stock(itemId));
+        assertFalse(stockReservationService.release(reservation.getId()));
+    }
+
+    @Test
+    void shard_상품_해제() {
+        stockShardService.enable(itemId, 2);
+        StockReservation reservation = stockReservationService.reserve(memberId, itemId, 4);
+
+        //when
+        assertTrue(stockReservationService.release(reservation.getId()));
+
+        //then
+        //돌려준 재고는 item row가 아니라 shard로
+        assertEquals(5, stock(itemId));
+        assertEquals(5, stockShardService.getQuantities(itemId).stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, (int) transactionTemplate.execute(status -> em.find(Item.class, itemId).getStockQuantity()));
+    }
+
+    @Test
+    void 재고_장부_상품은_예약_불가() {
+        stockLedger.enable(itemId);
+        try {
+            //then
+            assertThrows(StockReservationNotAllowedException.class, () -> stockReservationService.reserve(memberId, itemId, 1));
+            assertEquals(5, stock(itemId));
+        } finally {
+            stockLedger.disable(itemId);
+        }
+    }
+
+    @Test
+    void 만료() throws InterruptedException {
+        StockReservation first = stockReservationService.reserve(memberId, itemId, 2);
+        stockReservationService.reserve(memberId, itemId, 3);
+        assertEquals(0, stock(itemId));
+
+        //when
+        long deadline = System.currentTimeMillis() + 10000;
+        while (stock(itemId) < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            //테스트 프로필은 주기 작업이 꺼져 있으므로 직접 만료 처리
+            stockReservationService.expire();
+        }
+
+        //then
+        //ttl(1초)이 지나면 휠이 만료된 예약을 모아서 재고에 돌려준다.
+        assertEquals(5, stock(itemId));
+        assertThrows(IllegalStateException.class, () -> stockReservationService.confirm(first.getId()));
+        assertEquals(0L, (long) transactionTemplate.execute(status ->
+                em.createQuery("select count(r) from StockReservation r where r.item.id = :itemId", Long.class)
+                        .setParameter("itemId", itemId)
+                        .getSingleResult()));
+    }
+}